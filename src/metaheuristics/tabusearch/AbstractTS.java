@@ -3,9 +3,35 @@
  */
 package metaheuristics.tabusearch;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import problems.Evaluator;
 import solutions.Solution;
@@ -26,9 +52,10 @@ public abstract class AbstractTS<E> {
 	public static boolean verbose = true;
 
 	/**
-	 * a random number generator
+	 * a random number generator, seeded with 0 unless {@link #setSeed(long)}
+	 * is called
 	 */
-	static Random rng = new Random(0);
+	protected Random rng = new Random(0);
 
 	/**
 	 * the objective function being optimized
@@ -55,6 +82,12 @@ public abstract class AbstractTS<E> {
 	 */
 	protected Solution<E> sol;
 
+	/**
+	 * the solution the search starts from instead of building one with the
+	 * constructive heuristic, or null
+	 */
+	protected Solution<E> initialSol;
+
 	/**
 	 * the tabu tenure.
 	 */
@@ -66,6 +99,13 @@ public abstract class AbstractTS<E> {
      */
     protected Double portionCL;
 
+    /**
+     * the greediness of the constructive heuristic, in [0, 1]: the RCL holds
+     * the candidates whose cost is within alpha * (max - min) of the best
+     * one, so 0 is purely greedy and 1 purely random
+     */
+    protected Double alpha = 0.0;
+
     /**
      * if it uses fist-improvement strategy on search.
      * if not, uses best-improvement strategy
@@ -107,6 +147,209 @@ public abstract class AbstractTS<E> {
 	 */
 	protected ArrayDeque<E> TL;
 
+	/**
+	 * the trace receiving every improvement of the best solution. If none is
+	 * given, {@link #verbose} is set and no listener receives the
+	 * improvements, a CSV trace on the standard output is used.
+	 */
+	protected ConvergenceTrace trace;
+
+	/**
+	 * the number of iterations performed since {@link #init()}
+	 */
+	protected long iteration;
+
+	/**
+	 * the search time consumed since {@link #init()}, in nanoseconds. Only the
+	 * time spent inside {@link #init()} and {@link #step(int)} is counted, so a
+	 * paused search does not consume its budget.
+	 */
+	protected long elapsedNanos;
+
+	/**
+	 * the value of {@link System#nanoTime()} when the running
+	 * {@link #step(int)} call started
+	 */
+	private long stepStartNanos;
+
+	/**
+	 * target search time between two reads of the clock, in nanoseconds.
+	 * Time based criteria are checked at about this granularity.
+	 */
+	public static final long CLOCK_GRANULARITY_NANOS = 1_000_000L;
+
+	/**
+	 * the search time at the last read of the clock, in nanoseconds
+	 */
+	private long clockNanos;
+
+	/**
+	 * the iteration of the last read of the clock
+	 */
+	private long clockIteration;
+
+	/**
+	 * number of iterations between two reads of the clock, adapted to the
+	 * duration of the iterations
+	 */
+	private long clockInterval = 1;
+
+	/**
+	 * the CPU time spent by the search, in nanoseconds, as of the last read
+	 * of the clock
+	 */
+	private long cpuNanos;
+
+	/**
+	 * the CPU time spent by the search before the running step
+	 */
+	private long cpuBaseNanos;
+
+	/**
+	 * the CPU time of the current thread when the running step started
+	 */
+	private long stepStartCpuNanos;
+
+	/**
+	 * the iteration in which the best solution last improved
+	 */
+	private long lastImprovementIteration;
+
+	/**
+	 * the search time in which the best solution last improved, as read from
+	 * the clock
+	 */
+	private long lastImprovementNanos;
+
+	/**
+	 * the additional stopping criteria, checked after every iteration
+	 */
+	private final List<StopCriterion> iterationCriteria = new ArrayList<>();
+
+	/**
+	 * the additional stopping criteria, checked when the clock is read
+	 */
+	private final List<StopCriterion> timedCriteria = new ArrayList<>();
+
+	/**
+	 * whether some criterion needs the CPU time of the search
+	 */
+	private boolean measuresCpuTime;
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * whether a {@link #step(int)} call is running
+	 */
+	private boolean stepping;
+
+	/**
+	 * whether {@link #init()} was called
+	 */
+	private boolean initialized;
+
+	/**
+	 * whether the search has finished, i.e. its trace was closed
+	 */
+	private boolean finished;
+
+	/**
+	 * set by {@link #cancel()}, possibly from another thread
+	 */
+	private volatile boolean cancelled;
+
+	/**
+	 * the last best solution found, published for {@link #snapshotBest()}
+	 */
+	private volatile Solution<E> publishedBest;
+
+	/**
+	 * called with a copy of each new best solution, or null
+	 */
+	private Consumer<Solution<E>> improvementListener;
+
+	/**
+	 * the publisher of improvement events, created on the first request
+	 */
+	private volatile ImprovementPublisher<ImprovementEvent<E>> improvementPublisher;
+
+	/**
+	 * the number of improvement events buffered for each subscriber
+	 */
+	public static final int IMPROVEMENT_BUFFER = 64;
+
+	/**
+	 * target duration of an iteration for the adaptive portion of the
+	 * candidate list, in nanoseconds, or 0 if the portion is fixed
+	 */
+	private double targetLatencyNanos;
+
+	/**
+	 * the smallest portion of the candidate list set by the controller
+	 */
+	private double minPortionCL;
+
+	/**
+	 * the portion below which the controller does not go until the best
+	 * solution improves, raised when the search stagnates
+	 */
+	private double portionFloor;
+
+	/**
+	 * number of iterations without improvement after which the portion is
+	 * widened, and the iteration of the last widening
+	 */
+	private long widenAfterIterations, lastWideningIteration;
+
+	/**
+	 * the portion of the search time that intensifications may consume
+	 */
+	private double intensificationShare = 1.0;
+
+	/**
+	 * the search time consumed by intensifications, in nanoseconds
+	 */
+	private long intensificationNanos;
+
+	/**
+	 * number of intensifications performed, of those aborted by the budget
+	 * and of those skipped because the budget was exhausted
+	 */
+	private long intensifications, abortedIntensifications, skippedIntensifications;
+
+	/**
+	 * the value of {@link System#nanoTime()} at which the running
+	 * intensification must stop, if it is budgeted
+	 */
+	private long intensificationDeadline;
+	private boolean intensificationBudgeted;
+	private boolean intensificationAborted;
+
+	/**
+	 * file receiving the periodic checkpoints, or null if disabled
+	 */
+	private String checkpointFile;
+
+	/**
+	 * search time between two checkpoints, in nanoseconds
+	 */
+	private long checkpointIntervalNanos;
+
+	/**
+	 * search time of the last checkpoint, in nanoseconds
+	 */
+	private long lastCheckpointNanos;
+
+	/**
+	 * identifies checkpoint files ("TSCK")
+	 */
+	private static final int CHECKPOINT_MAGIC = 0x5453434B;
+
+	/**
+	 * version of the checkpoint format
+	 */
+	private static final int CHECKPOINT_VERSION = 3;
+
 	/**
 	 * Creates the Candidate List, which is an ArrayList of candidate elements
 	 * that can enter a solution.
@@ -176,6 +419,86 @@ public abstract class AbstractTS<E> {
      */
     public abstract Solution<E> intensification();
 
+	/**
+	 * Writes a candidate element into a checkpoint.
+	 *
+	 * @param out
+	 *            The checkpoint being written.
+	 * @param elem
+	 *            The element.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	protected abstract void writeElement(DataOutput out, E elem) throws IOException;
+
+	/**
+	 * Reads a candidate element written by {@link #writeElement}.
+	 *
+	 * @param in
+	 *            The checkpoint being read.
+	 * @return The element.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	protected abstract E readElement(DataInput in) throws IOException;
+
+	/**
+	 * Called whenever the current solution and the tabu list are replaced
+	 * outside of the neighborhood moves, i.e. at the end of {@link #init()} and
+	 * of {@link #restoreCheckpoint(String)}, so that subclasses can rebuild the
+	 * structures they derive from them and clear their memory of the search.
+	 * On a restore, {@link #readSearchState(DataInput)} is called next and
+	 * brings that memory back. Does nothing by default.
+	 */
+	protected void resetSearchState() {
+	}
+
+	/**
+	 * Writes the state that a subclass keeps across iterations and that
+	 * cannot be rebuilt from the solutions, the tabu list and the candidate
+	 * list, at the end of a checkpoint. Does nothing by default.
+	 *
+	 * @param out
+	 *            The checkpoint being written.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	protected void writeSearchState(DataOutput out) throws IOException {
+	}
+
+	/**
+	 * Reads back the state written by {@link #writeSearchState(DataOutput)},
+	 * after {@link #resetSearchState()}. Does nothing by default.
+	 *
+	 * @param in
+	 *            The checkpoint being read.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	protected void readSearchState(DataInput in) throws IOException {
+	}
+
+	/**
+	 * Gives the solution offered to the update of the best solution after
+	 * each iteration, by default the current solution. Subclasses whose
+	 * current solution may be infeasible return a feasible solution derived
+	 * from it, e.g. a repair, or null if there is none.
+	 *
+	 * @return The candidate to the best solution, which is copied if taken.
+	 */
+	protected Solution<E> candidateBest() {
+		return sol;
+	}
+
+	/**
+	 * Called by {@link #saveCheckpoint(String)} before the state of the search
+	 * is written, so that subclasses which keep the candidate list in other
+	 * structures during the search can bring {@link #CL} up to date. Does
+	 * nothing by default.
+	 */
+	protected void prepareCheckpoint() {
+	}
+
 	/**
 	 * Constructor for the AbstractTS class.
 	 * 
@@ -208,7 +531,11 @@ public abstract class AbstractTS<E> {
 	/**
 	 * The TS constructive heuristic, which is responsible for building a
 	 * feasible solution by selecting in a greedy fashion, candidate
-	 * elements to enter the solution.
+	 * elements to enter the solution. In GRASP fashion, the element is
+	 * drawn from a RCL whose width is given by {@link #alpha}. The cost of
+	 * the solution is updated with the insertion cost of each element, and
+	 * subclasses able to keep the insertion costs up to date should override
+	 * this method, which evaluates each candidate at each step.
 	 * 
 	 * @return A feasible solution to the problem being minimized.
 	 */
@@ -218,11 +545,14 @@ public abstract class AbstractTS<E> {
 		RCL = makeRCL();
 		sol = createEmptySol();
 		cost = Double.POSITIVE_INFINITY;
+		ObjFunction.evaluate(sol);
+		double[] deltaCosts = new double[CL.size()];
+		int[] rclIndexes = new int[CL.size()];
 
 		/* Main loop, which repeats until the stopping criteria is reached. */
 		while (!constructiveStopCriteria()) {
-			Double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
-			cost = ObjFunction.evaluate(sol);
+			double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
+			cost = sol.cost;
 			updateCL();
 
             if (CL.isEmpty()) break;
@@ -231,8 +561,9 @@ public abstract class AbstractTS<E> {
 			 * Explore all candidate elements to enter the solution, saving the
 			 * highest and lowest cost variation achieved by the candidates.
 			 */
-			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, sol);
+			for (int k = 0; k < CL.size(); k++) {
+				double deltaCost = ObjFunction.evaluateInsertionCost(CL.get(k), sol);
+				deltaCosts[k] = deltaCost;
 				if (deltaCost < minCost)
 					minCost = deltaCost;
 				if (deltaCost > maxCost)
@@ -243,10 +574,12 @@ public abstract class AbstractTS<E> {
 			 * Among all candidates, insert into the RCL those with the highest
 			 * performance.
 			 */
-			for (E c : CL) {
-				Double deltaCost = ObjFunction.evaluateInsertionCost(c, sol);
-				if (deltaCost <= minCost) {
-					RCL.add(c);
+			double threshold = minCost + alpha * (maxCost - minCost);
+			int rclSize = 0;
+			for (int k = 0; k < CL.size(); k++) {
+				if (deltaCosts[k] <= threshold) {
+					RCL.add(CL.get(k));
+					rclIndexes[rclSize++] = k;
 				}
 			}
 
@@ -254,16 +587,43 @@ public abstract class AbstractTS<E> {
 			int rndIndex = rng.nextInt(RCL.size());
 			E inCand = RCL.get(rndIndex);
 
-			CL.remove(inCand);
+			// Remove it from the CL by moving the last candidate to its place
+			int k = rclIndexes[rndIndex];
+			CL.set(k, CL.get(CL.size() - 1));
+			CL.remove(CL.size() - 1);
 			sol.add(inCand);
-
-			ObjFunction.evaluate(sol);
+			sol.cost += deltaCosts[k];
 			RCL.clear();
 		}
 
 		return sol;
 	}
 
+	/**
+	 * Makes the search start from a given solution, e.g. one chosen from a
+	 * {@link SeedPool}, instead of building one with the constructive
+	 * heuristic.
+	 *
+	 * @param initialSol
+	 *            The solution, which is copied by {@link #init()}, or null to
+	 *            use the constructive heuristic.
+	 */
+	public void setInitialSolution(Solution<E> initialSol) {
+		this.initialSol = initialSol;
+	}
+
+	/**
+	 * Sets the greediness of the constructive heuristic.
+	 *
+	 * @param alpha
+	 *            The width of the RCL, in [0, 1]; 0 is purely greedy.
+	 */
+	public void setAlpha(double alpha) {
+		if (alpha < 0 || alpha > 1)
+			throw new IllegalArgumentException("alpha must be in [0, 1]");
+		this.alpha = alpha;
+	}
+
 	/**
 	 * The TS mainframe. It consists of a constructive heuristic followed by
 	 * a loop, in which each iteration a neighborhood move is performed on
@@ -272,37 +632,743 @@ public abstract class AbstractTS<E> {
 	 * @return The best feasible solution obtained throughout all iterations.
 	 */
 	public Solution<E> solve() {
-        long startTime = System.currentTimeMillis();
-        long endTime = System.currentTimeMillis();
+		init();
+		while (step(Integer.MAX_VALUE));
+
+		return bestSol;
+	}
+
+	/**
+	 * Solves asynchronously on the given executor. Cancelling the returned
+	 * future cancels the search.
+	 *
+	 * @param executor
+	 *            The executor running the search.
+	 * @return A future completed with the best feasible solution.
+	 */
+	public CompletableFuture<Solution<E>> solveAsync(Executor executor) {
+		CompletableFuture<Solution<E>> future = CompletableFuture.supplyAsync(this::solve, executor);
+		future.whenComplete((result, error) -> {
+			if (future.isCancelled())
+				cancel();
+		});
+		return future;
+	}
+
+	/**
+	 * Anytime solve: builds the initial solution on the calling thread and
+	 * returns it at once, while the search goes on in the background on the
+	 * given executor. Each improvement is published by the returned handle
+	 * and passed to the listener, on the thread of the search.
+	 *
+	 * @param executor
+	 *            The executor running the search.
+	 * @param listener
+	 *            Called with each new best solution, or null.
+	 * @return The handle of the search.
+	 */
+	public AnytimeSearch<E> solveAnytime(Executor executor, Consumer<Solution<E>> listener) {
+		long start = System.nanoTime();
+		// a listener replaces the default trace of init(), which publishes
+		// nothing yet
+		improvementListener = listener != null ? best -> {
+		} : null;
+		init();
+		AnytimeSearch<E> search = new AnytimeSearch<E>(this, new Solution<E>(sol), System.nanoTime() - start);
+		improvementListener = best -> {
+			if (search.publish(best) && listener != null)
+				listener.accept(best);
+		};
+		search.start(executor);
+		return search;
+	}
+
+	/**
+	 * Sets a listener called with a copy of each new best solution, on the
+	 * thread of the search.
+	 *
+	 * @param listener
+	 *            The listener, or null.
+	 */
+	public void setImprovementListener(Consumer<Solution<E>> listener) {
+		this.improvementListener = listener;
+	}
+
+	/**
+	 * Gives the publisher of the improvements of the best solution, to which
+	 * any number of subscribers (loggers, dashboards, checkpointers) can
+	 * attach. They are called on the common pool with at most
+	 * {@link #IMPROVEMENT_BUFFER} pending events each, the oldest being dropped,
+	 * so that they never stall the search, and are completed when the search
+	 * finishes.
+	 *
+	 * @return The publisher.
+	 */
+	public Flow.Publisher<ImprovementEvent<E>> getImprovementPublisher() {
+		return improvementPublisher(ForkJoinPool.commonPool(), IMPROVEMENT_BUFFER);
+	}
+
+	/**
+	 * Gives the publisher of the improvements of the best solution, creating
+	 * it with the given executor and buffer if it does not exist yet.
+	 *
+	 * @param executor
+	 *            The executor on which the subscribers are called.
+	 * @param capacity
+	 *            The number of events buffered for each subscriber.
+	 * @return The publisher.
+	 * @see #getImprovementPublisher()
+	 */
+	public synchronized ImprovementPublisher<ImprovementEvent<E>> improvementPublisher(Executor executor, int capacity) {
+		if (improvementPublisher == null)
+			improvementPublisher = new ImprovementPublisher<ImprovementEvent<E>>(executor, capacity);
+		return improvementPublisher;
+	}
+
+	/**
+	 * Starts a stepwise search: builds the initial solution with the
+	 * constructive heuristic, unless one was given with
+	 * {@link #setInitialSolution(Solution)}, and resets the tabu list, the iteration counter
+	 * and the consumed time. A search cancelled before can be started again.
+	 * The search then proceeds with {@link #step(int)}.
+	 */
+	public void init() {
+		long startNanos = System.nanoTime();
+		cancelled = false;
+
+		if (verbose && trace == null && improvementListener == null)
+			trace = ConvergenceTrace.toStdout();
 
 		bestSol = createEmptySol();
-		constructiveHeuristic();
+		publishedBest = null;
+		if (initialSol != null) {
+			CL = makeCL();
+			RCL = makeRCL();
+			sol = new Solution<E>(initialSol);
+			CL.removeAll(sol);
+			ObjFunction.evaluate(sol);
+		} else {
+			constructiveHeuristic();
+		}
 		TL = makeTL();
-        int iteration = 0;
-        consecutiveBetterSolutions = 0;
-
-		while (endTime - startTime <= timeLimit * 1000) {
-			neighborhoodMove();
-            if (isWithIntensification && consecutiveBetterSolutions >= consecutiveBetterSolutionsToIntensification) {
-                intensification();
-            }
-
-			if (bestSol.cost > sol.cost) {
-                consecutiveBetterSolutions++;
-				bestSol = new Solution<E>(sol);
-				if (verbose)
-					System.out.println("(Iter. " + iteration + ") BestSol = " + bestSol);
-			} else {
-                consecutiveBetterSolutions = 0;
-            }
-
-            endTime = System.currentTimeMillis();
-            iteration++;
+		iteration = 0;
+		consecutiveBetterSolutions = 0;
+		elapsedNanos = System.nanoTime() - startNanos;
+		clockNanos = elapsedNanos;
+		clockInterval = 1;
+		cpuNanos = 0;
+		lastImprovementIteration = 0;
+		lastImprovementNanos = 0;
+		lastCheckpointNanos = 0;
+		intensificationNanos = 0;
+		intensifications = abortedIntensifications = skippedIntensifications = 0;
+		resetSearchState();
+		initialized = true;
+		finished = false;
+	}
+
+	/**
+	 * Performs up to the given number of iterations of the search, stopping
+	 * earlier when the time limit or another stopping criteria is reached or
+	 * the search is cancelled.
+	 *
+	 * @param iterations
+	 *            The maximum number of iterations to perform.
+	 * @return true if the search can continue, false if it has finished.
+	 */
+	public boolean step(int iterations) {
+		if (!initialized)
+			throw new IllegalStateException("init() must be called before step()");
+		if (finished)
+			return false;
+
+		stepStartNanos = System.nanoTime();
+		if (measuresCpuTime) {
+			stepStartCpuNanos = threadMXBean.getCurrentThreadCpuTime();
+			cpuBaseNanos = cpuNanos;
+		}
+		stepping = true;
+		clockIteration = iteration;
+		boolean more = !readClock();
+		for (int i = 0; more && i < iterations; i++) {
+			iterate();
+			more = !stopCriteria();
+		}
+		elapsedNanos = searchNanos();
+		if (measuresCpuTime)
+			cpuNanos = cpuBaseNanos + threadMXBean.getCurrentThreadCpuTime() - stepStartCpuNanos;
+		stepping = false;
+
+		if (!more)
+			finish();
+		return more;
+	}
+
+	/**
+	 * A single iteration of the search: a neighborhood move, possibly
+	 * followed by an intensification, and the update of the best solution.
+	 */
+	private void iterate() {
+		neighborhoodMove();
+		if (isWithIntensification && consecutiveBetterSolutions >= consecutiveBetterSolutionsToIntensification) {
+			scheduleIntensification();
+		}
+
+		Solution<E> candidate = candidateBest();
+		if (candidate != null && bestSol.cost > candidate.cost) {
+			consecutiveBetterSolutions++;
+			bestSol = new Solution<E>(candidate);
+			publishedBest = bestSol;
+			if (improvementListener != null)
+				improvementListener.accept(new Solution<E>(bestSol));
+			ImprovementPublisher<ImprovementEvent<E>> publisher = improvementPublisher;
+			if (publisher != null && publisher.hasSubscribers())
+				publisher.submit(new ImprovementEvent<E>(bestSol, iteration, searchNanos()));
+			lastImprovementIteration = iteration;
+			lastImprovementNanos = clockNanos;
+			if (trace != null)
+				trace.record(searchNanos(), iteration, bestSol.cost, bestSol.size());
+		} else {
+			consecutiveBetterSolutions = 0;
+		}
+
+		iteration++;
+	}
+
+	/**
+	 * Runs an intensification within its budget: it may take the portion
+	 * {@link #intensificationShare} of the search time elapsed so far, minus
+	 * what previous intensifications took. It is skipped when nothing is
+	 * left, and otherwise given the rest as a slice, after which
+	 * {@link #intensificationExpired()} tells it to stop.
+	 */
+	private void scheduleIntensification() {
+		long start = System.nanoTime();
+		intensificationBudgeted = intensificationShare < 1.0;
+		if (intensificationBudgeted) {
+			long slice = (long) (intensificationShare * searchNanos()) - intensificationNanos;
+			if (slice <= 0) {
+				skippedIntensifications++;
+				return;
+			}
+			intensificationDeadline = start + slice;
+		}
+
+		intensificationAborted = false;
+		intensification();
+		intensifications++;
+		if (intensificationAborted)
+			abortedIntensifications++;
+		intensificationBudgeted = false;
+		intensificationNanos += System.nanoTime() - start;
+	}
+
+	/**
+	 * Polled by {@link #intensification()} implementations that can be
+	 * interrupted, which must then end with the best move found so far.
+	 *
+	 * @return true if the slice of the running intensification is exhausted.
+	 */
+	protected boolean intensificationExpired() {
+		if (intensificationBudgeted && System.nanoTime() - intensificationDeadline >= 0)
+			intensificationAborted = true;
+		return intensificationAborted;
+	}
+
+	/**
+	 * Limits the search time consumed by intensifications to a portion of
+	 * the search time elapsed, see {@link #scheduleIntensification()}.
+	 *
+	 * @param share
+	 *            The portion of the search time, in (0, 1]; 1 for no limit.
+	 */
+	public void setIntensificationBudget(double share) {
+		if (share <= 0 || share > 1)
+			throw new IllegalArgumentException("Intensification budget must be in (0, 1]");
+		intensificationShare = share;
+	}
+
+	/**
+	 * @return the search time consumed by intensifications, in nanoseconds.
+	 */
+	public long getIntensificationNanos() {
+		return intensificationNanos;
+	}
+
+	/**
+	 * @return the number of intensifications performed, aborted and skipped,
+	 *         in this order.
+	 */
+	public long[] getIntensificationCounts() {
+		return new long[] { intensifications, abortedIntensifications, skippedIntensifications };
+	}
+
+	/**
+	 * The stopping criteria of the search, checked after every iteration:
+	 * the search was cancelled or some criterion is met. The clock is read,
+	 * and the time limit and timed criteria are checked, only once every
+	 * {@link #clockInterval} iterations.
+	 *
+	 * @return true if the criteria is met.
+	 */
+	private boolean stopCriteria() {
+		if (cancelled)
+			return true;
+		for (int i = 0; i < iterationCriteria.size(); i++) {
+			if (iterationCriteria.get(i).isMet(this))
+				return true;
+		}
+		if (iteration - clockIteration < clockInterval)
+			return false;
+		return readClock();
+	}
+
+	/**
+	 * Reads the clock, adapts the number of iterations until the next read
+	 * so that reads happen about every {@link #CLOCK_GRANULARITY_NANOS}, and
+	 * checks the time limit, the timed criteria and the checkpoint interval.
+	 *
+	 * @return true if the search must stop.
+	 */
+	private boolean readClock() {
+		long now = searchNanos();
+		long iterations = iteration - clockIteration;
+		long nanos = now - clockNanos;
+		if (iterations > 0 && nanos > 0) {
+			long target = iterations * CLOCK_GRANULARITY_NANOS / nanos;
+			clockInterval = Math.max(1, Math.min(2 * clockInterval, target));
+		}
+		if (targetLatencyNanos > 0 && iterations > 0)
+			adaptPortion(iterations, nanos);
+		clockNanos = now;
+		clockIteration = iteration;
+		if (measuresCpuTime)
+			cpuNanos = cpuBaseNanos + threadMXBean.getCurrentThreadCpuTime() - stepStartCpuNanos;
+
+		if (checkpointFile != null && clockNanos - lastCheckpointNanos >= checkpointIntervalNanos)
+			checkpoint();
+
+		if (cancelled || clockNanos > timeLimit * 1_000_000_000L)
+			return true;
+		for (int i = 0; i < timedCriteria.size(); i++) {
+			if (timedCriteria.get(i).isMet(this))
+				return true;
+		}
+		for (int i = 0; i < iterationCriteria.size(); i++) {
+			if (iterationCriteria.get(i).isMet(this))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adapts the portion of the candidate list to the latency measured over
+	 * the iterations since the last read of the clock. As the cost of a
+	 * neighborhood move grows about linearly with the portion, the portion is
+	 * scaled by the ratio of the target to the measured latency, by a factor
+	 * of at most 2 each time. When the best solution does not improve for
+	 * {@link #widenAfterIterations}, the portion is doubled and kept at least
+	 * at that value until the next improvement.
+	 */
+	private void adaptPortion(long iterations, long nanos) {
+		if (lastImprovementIteration > lastWideningIteration)
+			portionFloor = minPortionCL;
+		if (iteration - lastImprovementIteration >= widenAfterIterations && iteration - lastWideningIteration >= widenAfterIterations) {
+			portionFloor = Math.min(1.0, 2 * Math.max(portionFloor, portionCL));
+			lastWideningIteration = iteration;
+		}
+
+		double latency = (double) nanos / iterations;
+		double factor = Math.max(0.5, Math.min(2.0, targetLatencyNanos / latency));
+		portionCL = Math.max(portionFloor, Math.min(1.0, portionCL * factor));
+	}
+
+	/**
+	 * Lets the search adapt the portion of the candidate list considered by
+	 * each move ({@link #portionCL}) so that iterations take about the given
+	 * time: the latency is measured whenever the clock is read, and the
+	 * portion shrinks when iterations are slower than the target and grows
+	 * when they are faster. When the search stagnates, the portion is widened
+	 * again. Since it depends on measured times, a search with an adaptive
+	 * portion is not reproducible from its seed.
+	 *
+	 * @param targetIterationsPerSecond
+	 *            The target rate of iterations, or 0 to keep the portion fixed.
+	 * @param minPortion
+	 *            The smallest portion, in (0, 1].
+	 * @param stagnationIterations
+	 *            The number of iterations without improvement after which the
+	 *            portion is widened.
+	 */
+	public void setAdaptivePortion(double targetIterationsPerSecond, double minPortion, long stagnationIterations) {
+		if (targetIterationsPerSecond < 0 || minPortion <= 0 || minPortion > 1 || stagnationIterations < 1)
+			throw new IllegalArgumentException("Invalid adaptive portion parameters");
+		targetLatencyNanos = targetIterationsPerSecond > 0 ? 1e9 / targetIterationsPerSecond : 0;
+		minPortionCL = minPortion;
+		portionFloor = minPortion;
+		widenAfterIterations = stagnationIterations;
+		lastWideningIteration = 0;
+	}
+
+	/**
+	 * @return the portion of the candidate list currently considered by each
+	 *         move.
+	 */
+	public double getPortionCL() {
+		return portionCL;
+	}
+
+	/**
+	 * @return the search time consumed so far, including the running step.
+	 */
+	private long searchNanos() {
+		return stepping ? elapsedNanos + (System.nanoTime() - stepStartNanos) : elapsedNanos;
+	}
+
+	/**
+	 * Ends the search, closing its trace.
+	 */
+	private void finish() {
+		finished = true;
+		if (checkpointFile != null)
+			checkpoint();
+		if (improvementPublisher != null)
+			improvementPublisher.close();
+		if (trace != null) {
+			trace.close();
+			trace = null;
+		}
+	}
+
+	/**
+	 * Requests the search to stop. It can be called from any thread; the
+	 * running or next {@link #step(int)} returns false at the next
+	 * iteration boundary.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * @return true if the search was initialized and has finished.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return true if {@link #init()} was called.
+	 */
+	public boolean isInitialized() {
+		return initialized;
+	}
+
+	/**
+	 * Gives a copy of the best solution found so far. It can be called from
+	 * any thread while the search runs.
+	 *
+	 * @return The best solution found so far, or null if no iteration has
+	 *         improved on the empty solution yet.
+	 */
+	public Solution<E> snapshotBest() {
+		Solution<E> best = publishedBest;
+		return best == null ? null : new Solution<E>(best);
+	}
+
+	/**
+	 * @return the number of iterations performed so far.
+	 */
+	public long getIterations() {
+		return iteration;
+	}
+
+	/**
+	 * @return the search time consumed so far, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the search time at the last read of the clock, in nanoseconds.
+	 *         During a step it lags behind by about
+	 *         {@link #CLOCK_GRANULARITY_NANOS}.
+	 */
+	public long getClockNanos() {
+		return clockNanos;
+	}
+
+	/**
+	 * @return the CPU time spent by the search as of the last read of the
+	 *         clock, in nanoseconds, if a criterion asked for it, or 0.
+	 */
+	public long getCpuNanos() {
+		return cpuNanos;
+	}
+
+	/**
+	 * @return the cost of the best solution found so far, or infinity until
+	 *         the first iteration offers one, since the best solution
+	 *         {@link #init()} starts from is empty and possibly infeasible.
+	 */
+	public double getBestCost() {
+		return publishedBest == null ? Double.POSITIVE_INFINITY : bestSol.cost;
+	}
+
+	/**
+	 * @return the iteration in which the best solution last improved.
+	 */
+	public long getLastImprovementIteration() {
+		return lastImprovementIteration;
+	}
+
+	/**
+	 * @return the search time, as read from the clock, in which the best
+	 *         solution last improved.
+	 */
+	public long getLastImprovementNanos() {
+		return lastImprovementNanos;
+	}
+
+	/**
+	 * Adds a stopping criterion to the search, besides its time limit. The
+	 * search stops as soon as any criterion is met.
+	 *
+	 * @param criterion
+	 *            The stopping criterion.
+	 */
+	public void addStopCriterion(StopCriterion criterion) {
+		if (criterion.isTimed())
+			timedCriteria.add(criterion);
+		else
+			iterationCriteria.add(criterion);
+		if (criterion.needsCpuTime()) {
+			if (!threadMXBean.isCurrentThreadCpuTimeSupported())
+				throw new UnsupportedOperationException("The JVM does not measure thread CPU time");
+			if (!threadMXBean.isThreadCpuTimeEnabled())
+				threadMXBean.setThreadCpuTimeEnabled(true);
+			measuresCpuTime = true;
+		}
+	}
+
+	/**
+	 * Changes the time budget of the search, which may be running in steps.
+	 *
+	 * @param timeLimit
+	 *            The number of seconds of search time.
+	 */
+	public void setTimeLimit(Integer timeLimit) {
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Enables periodic checkpoints of the search. The whole search state is
+	 * written every given interval of search time, and once more when the
+	 * search finishes. The file is replaced atomically, so a crash while
+	 * writing leaves the previous checkpoint intact.
+	 *
+	 * @param filename
+	 *            Name of the checkpoint file.
+	 * @param intervalSeconds
+	 *            Search time between two checkpoints, in seconds.
+	 */
+	public void setCheckpoint(String filename, int intervalSeconds) {
+		this.checkpointFile = filename;
+		this.checkpointIntervalNanos = intervalSeconds * 1_000_000_000L;
+	}
+
+	/**
+	 * Writes the periodic checkpoint. A failure is reported but does not
+	 * stop the search.
+	 */
+	private void checkpoint() {
+		lastCheckpointNanos = searchNanos();
+		try {
+			saveCheckpoint(checkpointFile);
+		} catch (IOException e) {
+			System.err.println("Checkpoint failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the state of the search to a compact binary file: the incumbent
+	 * and best solutions, the tabu list, the candidate list, the state of the
+	 * random number generator, the iteration counter, the consumed search
+	 * and CPU time, the progress of the stagnation criteria, the adaptive
+	 * portion of the candidate list, the intensification budget and the
+	 * state of the subclass, see {@link #writeSearchState(DataOutput)}. The
+	 * configuration of the search is not written. It must be called between
+	 * iterations.
+	 *
+	 * @param filename
+	 *            Name of the checkpoint file.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public void saveCheckpoint(String filename) throws IOException {
+		Path target = Paths.get(filename);
+		Path temp = Paths.get(filename + ".tmp");
+		prepareCheckpoint();
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile())))) {
+			out.writeInt(CHECKPOINT_MAGIC);
+			out.writeInt(CHECKPOINT_VERSION);
+			out.writeInt(ObjFunction.getDomainSize());
+			out.writeLong(iteration);
+			out.writeLong(searchNanos());
+			out.writeLong(cpuNanos);
+			out.writeLong(lastImprovementIteration);
+			out.writeLong(lastImprovementNanos);
+			out.writeInt(consecutiveBetterSolutions);
+			out.writeDouble(portionCL);
+			out.writeDouble(portionFloor);
+			out.writeLong(lastWideningIteration);
+			out.writeLong(intensificationNanos);
+			out.writeLong(intensifications);
+			out.writeLong(abortedIntensifications);
+			out.writeLong(skippedIntensifications);
+			writeSolution(out, sol);
+			writeSolution(out, bestSol);
+			writeElements(out, TL);
+			writeElements(out, CL);
+
+			ByteArrayOutputStream rngBytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream rngOut = new ObjectOutputStream(rngBytes)) {
+				rngOut.writeObject(rng);
+			}
+			out.writeInt(rngBytes.size());
+			rngBytes.writeTo(out);
+			writeSearchState(out);
+		}
+		Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Restores a search written by {@link #saveCheckpoint(String)}, in place
+	 * of {@link #init()}, on a solver configured as the saved one. The search
+	 * then proceeds with {@link #step(int)} exactly as the saved one would
+	 * have, except for the choices that depend on measured times (the clock
+	 * interval restarts at 1). A cancelled search is resumed as running.
+	 *
+	 * @param filename
+	 *            Name of the checkpoint file.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public void restoreCheckpoint(String filename) throws IOException {
+		cancelled = false;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+			if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION)
+				throw new IOException(filename + " is not a checkpoint of this version");
+			int domainSize = in.readInt();
+			if (domainSize != ObjFunction.getDomainSize())
+				throw new IOException("Checkpoint has domain size " + domainSize + ", instance has " + ObjFunction.getDomainSize());
+
+			iteration = in.readLong();
+			elapsedNanos = in.readLong();
+			cpuNanos = in.readLong();
+			lastImprovementIteration = in.readLong();
+			lastImprovementNanos = in.readLong();
+			consecutiveBetterSolutions = in.readInt();
+			portionCL = in.readDouble();
+			portionFloor = in.readDouble();
+			lastWideningIteration = in.readLong();
+			intensificationNanos = in.readLong();
+			intensifications = in.readLong();
+			abortedIntensifications = in.readLong();
+			skippedIntensifications = in.readLong();
+			sol = readSolution(in);
+			bestSol = readSolution(in);
+			TL = new ArrayDeque<E>();
+			readElements(in, TL);
+			CL = new ArrayList<E>();
+			readElements(in, CL);
+			RCL = makeRCL();
+
+			byte[] rngBytes = new byte[in.readInt()];
+			in.readFully(rngBytes);
+			try (ObjectInputStream rngIn = new ObjectInputStream(new ByteArrayInputStream(rngBytes))) {
+				rng = (Random) rngIn.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+
+			resetSearchState();
+			readSearchState(in);
 		}
 
+		if (verbose && trace == null && improvementListener == null)
+			trace = ConvergenceTrace.toStdout();
+		publishedBest = bestSol.isEmpty() ? null : bestSol;
+		clockNanos = elapsedNanos;
+		clockIteration = iteration;
+		clockInterval = 1;
+		lastCheckpointNanos = elapsedNanos;
+		initialized = true;
+		finished = false;
+	}
+
+	/**
+	 * Resumes a search from a checkpoint and runs it until its time limit.
+	 *
+	 * @param filename
+	 *            Name of the checkpoint file.
+	 * @return The best feasible solution obtained throughout all iterations.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public Solution<E> resume(String filename) throws IOException {
+		restoreCheckpoint(filename);
+		while (step(Integer.MAX_VALUE));
+
 		return bestSol;
 	}
 
+	private void writeSolution(DataOutput out, Solution<E> s) throws IOException {
+		out.writeDouble(s.cost);
+		writeElements(out, s);
+	}
+
+	private Solution<E> readSolution(DataInput in) throws IOException {
+		Solution<E> s = createEmptySol();
+		s.cost = in.readDouble();
+		readElements(in, s);
+		return s;
+	}
+
+	private void writeElements(DataOutput out, Collection<E> elements) throws IOException {
+		out.writeInt(elements.size());
+		for (E e : elements)
+			writeElement(out, e);
+	}
+
+	private void readElements(DataInput in, Collection<E> elements) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++)
+			elements.add(readElement(in));
+	}
+
+	/**
+	 * Seeds the random number generator used by the search, so that runs
+	 * with the same seed and parameters are reproducible.
+	 *
+	 * @param seed
+	 *            The seed of the random number generator.
+	 */
+	public void setSeed(long seed) {
+		rng.setSeed(seed);
+	}
+
+	/**
+	 * Sets the trace receiving the improvements of the next {@link #solve()}
+	 * call. The trace is closed when the search finishes.
+	 *
+	 * @param trace
+	 *            The convergence trace.
+	 */
+	public void setTrace(ConvergenceTrace trace) {
+		this.trace = trace;
+	}
+
 	/**
 	 * A standard stopping criteria for the constructive heuristic is to repeat
 	 * until the incumbent solution improves by inserting a new candidate
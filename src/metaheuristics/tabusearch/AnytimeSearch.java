@@ -0,0 +1,115 @@
+package metaheuristics.tabusearch;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import solutions.Solution;
+
+/**
+ * Handle of a search started by {@link AbstractTS#solveAnytime(Executor,
+ * java.util.function.Consumer)}. The initial solution is available as soon as
+ * the handle is returned; afterwards the best solution improves while the
+ * search runs in the background, and can be read at any time from any thread.
+ *
+ * @param <E>
+ *            Generic type of the candidate to enter a solution.
+ */
+public class AnytimeSearch<E> {
+
+	private final AbstractTS<E> solver;
+	private final Solution<E> initial;
+	private final long latencyNanos;
+
+	/**
+	 * the best solution so far, never worse than the initial one
+	 */
+	private volatile Solution<E> best;
+	private volatile long improvements;
+	private CompletableFuture<Solution<E>> result;
+
+	AnytimeSearch(AbstractTS<E> solver, Solution<E> initial, long latencyNanos) {
+		this.solver = solver;
+		this.initial = initial;
+		this.latencyNanos = latencyNanos;
+		this.best = initial;
+	}
+
+	/**
+	 * Runs the rest of the search on an executor.
+	 */
+	void start(Executor executor) {
+		result = CompletableFuture.supplyAsync(() -> {
+			while (solver.step(Integer.MAX_VALUE));
+			return best;
+		}, executor);
+		result.whenComplete((sol, error) -> {
+			if (result.isCancelled())
+				solver.cancel();
+		});
+	}
+
+	/**
+	 * Publishes a solution found by the search, on the thread of the search.
+	 *
+	 * @return true if it improves on the best solution so far.
+	 */
+	boolean publish(Solution<E> sol) {
+		if (sol.cost >= best.cost)
+			return false;
+		best = sol;
+		improvements++;
+		return true;
+	}
+
+	/**
+	 * @return the initial solution, which is feasible.
+	 */
+	public Solution<E> getInitial() {
+		return initial;
+	}
+
+	/**
+	 * @return the time taken to build the initial solution, in nanoseconds.
+	 */
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+
+	/**
+	 * @return the best solution found so far; it must not be modified.
+	 */
+	public Solution<E> getBest() {
+		return best;
+	}
+
+	/**
+	 * @return the number of improvements on the initial solution so far.
+	 */
+	public long getImprovements() {
+		return improvements;
+	}
+
+	/**
+	 * @return a future completed with the best solution when the search
+	 *         finishes; cancelling it cancels the search.
+	 */
+	public CompletableFuture<Solution<E>> getResult() {
+		return result;
+	}
+
+	/**
+	 * Requests the search to stop; the result is then completed with the best
+	 * solution found.
+	 */
+	public void cancel() {
+		solver.cancel();
+	}
+
+	/**
+	 * @return whether the search has finished.
+	 */
+	public boolean isDone() {
+		return result.isDone();
+	}
+
+}
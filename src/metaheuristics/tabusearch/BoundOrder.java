@@ -0,0 +1,110 @@
+package metaheuristics.tabusearch;
+
+/**
+ * A list of items, each with a double key, that can be sorted by increasing
+ * key in place. It is used to visit the candidates of a move in increasing
+ * order of a lower bound of their cost, so that a scan can stop as soon as no
+ * remaining candidate can beat the best move found. The arrays are allocated
+ * once, so that sorting at every iteration allocates nothing.
+ */
+public class BoundOrder {
+
+	private final int[] items;
+	private final double[] keys;
+	private int size;
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param capacity
+	 *            The maximum number of items.
+	 */
+	public BoundOrder(int capacity) {
+		items = new int[capacity];
+		keys = new double[capacity];
+	}
+
+	/**
+	 * Removes every item.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Appends an item.
+	 */
+	public void add(int item, double key) {
+		items[size] = item;
+		keys[size++] = key;
+	}
+
+	/**
+	 * Sorts the items by increasing key, in O(size log size).
+	 */
+	public void sort() {
+		sort(0, size - 1);
+	}
+
+	/**
+	 * @return the number of items.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the item at index t.
+	 */
+	public int item(int t) {
+		return items[t];
+	}
+
+	/**
+	 * @return the key of the item at index t.
+	 */
+	public double key(int t) {
+		return keys[t];
+	}
+
+	private void sort(int lo, int hi) {
+		while (hi - lo > 16) {
+			double pivot = median(keys[lo], keys[(lo + hi) >>> 1], keys[hi]);
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (keys[i] < pivot)
+					i++;
+				while (keys[j] > pivot)
+					j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			// recurse into the smaller part, so that the stack stays O(log n)
+			if (j - lo < hi - i) {
+				sort(lo, j);
+				lo = i;
+			} else {
+				sort(i, hi);
+				hi = j;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			for (int j = i; j > lo && keys[j - 1] > keys[j]; j--)
+				swap(j - 1, j);
+		}
+	}
+
+	private static double median(double a, double b, double c) {
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+	private void swap(int i, int j) {
+		int item = items[i];
+		items[i] = items[j];
+		items[j] = item;
+		double key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+	}
+
+}
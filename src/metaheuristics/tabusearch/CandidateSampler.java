@@ -0,0 +1,115 @@
+package metaheuristics.tabusearch;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A set of candidate elements 0..n-1 kept in a primitive array, with O(1)
+ * insertion and removal, from which a random portion is drawn in place by a
+ * partial Fisher-Yates shuffle. Drawing k elements costs O(k) and allocates
+ * nothing; the draw depends only on the state of the set and of the random
+ * generator, so it is reproducible from the seed of the search.
+ */
+public class CandidateSampler {
+
+	private final int[] elements;
+
+	/**
+	 * position[e] = index of element e in elements, or -1 if absent
+	 */
+	private final int[] position;
+	private int size;
+
+	/**
+	 * Creates an empty set.
+	 *
+	 * @param n
+	 *            The number of possible elements.
+	 */
+	public CandidateSampler(int n) {
+		elements = new int[n];
+		position = new int[n];
+		Arrays.fill(position, -1);
+	}
+
+	/**
+	 * Removes every element.
+	 */
+	public void clear() {
+		for (int t = 0; t < size; t++)
+			position[elements[t]] = -1;
+		size = 0;
+	}
+
+	/**
+	 * Adds an element, which must be absent, at the end of the array.
+	 */
+	public void add(int e) {
+		position[e] = size;
+		elements[size++] = e;
+	}
+
+	/**
+	 * Removes an element, which must be present, moving the last element of
+	 * the array to its place.
+	 */
+	public void remove(int e) {
+		int p = position[e];
+		int last = elements[--size];
+		elements[p] = last;
+		position[last] = p;
+		position[e] = -1;
+	}
+
+	/**
+	 * @return whether the element is present.
+	 */
+	public boolean contains(int e) {
+		return position[e] >= 0;
+	}
+
+	/**
+	 * @return the index of the element in the array, or -1 if absent.
+	 */
+	public int indexOf(int e) {
+		return position[e];
+	}
+
+	/**
+	 * @return the number of elements.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the element at index t of the array.
+	 */
+	public int get(int t) {
+		return elements[t];
+	}
+
+	/**
+	 * Draws a uniformly random portion of the elements, which are moved to the
+	 * first indexes of the array in random order.
+	 *
+	 * @param portion
+	 *            The portion of the elements drawn, in [0, 1].
+	 * @param rng
+	 *            The random generator.
+	 * @return The number k of elements drawn, found at indexes 0..k-1.
+	 */
+	public int sample(double portion, Random rng) {
+		int k = (int) (portion * size);
+		for (int t = 0; t < k; t++) {
+			int r = t + rng.nextInt(size - t);
+			int e = elements[r];
+			elements[r] = elements[t];
+			position[elements[r]] = r;
+			elements[t] = e;
+			position[e] = t;
+		}
+		return k;
+	}
+
+}
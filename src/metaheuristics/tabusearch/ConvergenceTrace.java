@@ -0,0 +1,303 @@
+package metaheuristics.tabusearch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, buffered writer for the convergence trace of a search. Every
+ * improvement of the best solution is recorded as a tuple (elapsed ns,
+ * iteration, best cost, size) in a primitive ring buffer by the search thread,
+ * and a background thread drains the buffer into the output stream, either as
+ * CSV lines or as fixed size binary records. The search thread never formats
+ * nor writes anything, and it never blocks: if the writer falls behind and the
+ * buffer is full, the record is dropped and counted. A trace that lost records
+ * ends with a marker holding their number, a "# N records dropped" line in CSV
+ * or a record read back as a {@link Entry#isDropMarker() drop marker}, so that
+ * it is not mistaken for a complete one.
+ */
+public class ConvergenceTrace implements AutoCloseable {
+
+	/**
+	 * The output format of the trace.
+	 */
+	public enum Format {
+		/** one "elapsed_ns,iteration,best_cost,size" line per record */
+		CSV,
+		/** one big-endian (long, long, double, int) record of 28 bytes per record */
+		BINARY
+	}
+
+	/**
+	 * A record of the trace, as read back by {@link #readBinary(InputStream)}.
+	 */
+	public static class Entry {
+		public final long elapsedNanos;
+		public final long iteration;
+		public final double cost;
+		public final int size;
+
+		public Entry(long elapsedNanos, long iteration, double cost, int size) {
+			this.elapsedNanos = elapsedNanos;
+			this.iteration = iteration;
+			this.cost = cost;
+			this.size = size;
+		}
+
+		/**
+		 * @return true if this is the marker ending a trace that dropped
+		 *         records, whose number is then {@link #iteration}.
+		 */
+		public boolean isDropMarker() {
+			return elapsedNanos == DROP_MARKER;
+		}
+	}
+
+	/**
+	 * header of the CSV format
+	 */
+	public static final String CSV_HEADER = "elapsed_ns,iteration,best_cost,size";
+
+	/**
+	 * elapsed time of the binary marker of dropped records
+	 */
+	private static final long DROP_MARKER = -1L;
+
+	/**
+	 * number of records the ring buffer holds, must be a power of two
+	 */
+	private static final int CAPACITY = 1 << 12;
+
+	/**
+	 * how long the writer thread sleeps when the buffer is empty
+	 */
+	private static final long IDLE_NANOS = 1_000_000L;
+
+	private final long[] elapsedNanos = new long[CAPACITY];
+	private final long[] iterations = new long[CAPACITY];
+	private final double[] costs = new double[CAPACITY];
+	private final int[] sizes = new int[CAPACITY];
+
+	/**
+	 * next slot to be written by the search thread
+	 */
+	private volatile long head;
+
+	/**
+	 * next slot to be read by the writer thread
+	 */
+	private volatile long tail;
+
+	/**
+	 * number of records dropped because the buffer was full
+	 */
+	private long dropped;
+
+	private volatile boolean closed;
+
+	private final Format format;
+	private final OutputStream out;
+	private final boolean closeOut;
+	private final Thread writer;
+	private IOException failure;
+
+	private ConvergenceTrace(OutputStream out, Format format, boolean closeOut) {
+		this.out = new BufferedOutputStream(out, 1 << 16);
+		this.format = format;
+		this.closeOut = closeOut;
+		this.writer = new Thread(this::drainLoop, "convergence-trace");
+		this.writer.setDaemon(true);
+	}
+
+	/**
+	 * Creates a trace that writes to the given stream, and starts its writer
+	 * thread.
+	 *
+	 * @param out
+	 *            The stream receiving the trace.
+	 * @param format
+	 *            The format of the records.
+	 * @param closeOut
+	 *            Whether the stream must be closed together with the trace.
+	 */
+	public static ConvergenceTrace toStream(OutputStream out, Format format, boolean closeOut) {
+		ConvergenceTrace trace = new ConvergenceTrace(out, format, closeOut);
+		trace.writer.start();
+		return trace;
+	}
+
+	/**
+	 * Creates a trace that writes to a file. Files ending with ".bin" receive
+	 * the binary format, any other name receives CSV.
+	 *
+	 * @param filename
+	 *            Name of the file receiving the trace.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static ConvergenceTrace toFile(String filename) throws IOException {
+		Format format = filename.endsWith(".bin") ? Format.BINARY : Format.CSV;
+		return toStream(new FileOutputStream(filename), format, true);
+	}
+
+	/**
+	 * Creates a CSV trace on the standard output, which is left open on close.
+	 */
+	public static ConvergenceTrace toStdout() {
+		return toStream(System.out, Format.CSV, false);
+	}
+
+	/**
+	 * Reads back a trace written in the binary format.
+	 *
+	 * @param in
+	 *            The stream holding the binary trace.
+	 * @return The records, in the order they were written, ending with a
+	 *         drop marker if the trace dropped records.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public static List<Entry> readBinary(InputStream in) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		while (true) {
+			long elapsed;
+			try {
+				elapsed = data.readLong();
+			} catch (EOFException e) {
+				return entries;
+			}
+			entries.add(new Entry(elapsed, data.readLong(), data.readDouble(), data.readInt()));
+		}
+	}
+
+	/**
+	 * Records an improvement. Called by the search thread only; it does not
+	 * allocate, format or block.
+	 *
+	 * @param elapsed
+	 *            Nanoseconds elapsed since the start of the search.
+	 * @param iteration
+	 *            The iteration in which the improvement was found.
+	 * @param cost
+	 *            The new best cost.
+	 * @param size
+	 *            The size of the new best solution.
+	 */
+	public void record(long elapsed, long iteration, double cost, int size) {
+		long h = head;
+		if (h - tail >= CAPACITY) {
+			dropped++;
+			return;
+		}
+		int slot = (int) (h & (CAPACITY - 1));
+		elapsedNanos[slot] = elapsed;
+		iterations[slot] = iteration;
+		costs[slot] = cost;
+		sizes[slot] = size;
+		head = h + 1;
+	}
+
+	/**
+	 * @return the number of records dropped because the writer fell behind.
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Drains the buffer until the trace is closed and no record is pending.
+	 */
+	private void drainLoop() {
+		try {
+			DataOutputStream data = new DataOutputStream(out);
+			if (format == Format.CSV)
+				out.write((CSV_HEADER + "\n").getBytes(StandardCharsets.US_ASCII));
+			StringBuilder line = new StringBuilder(64);
+			while (true) {
+				boolean done = closed;
+				long h = head;
+				for (long t = tail; t < h; t++) {
+					int slot = (int) (t & (CAPACITY - 1));
+					if (format == Format.CSV) {
+						line.setLength(0);
+						line.append(elapsedNanos[slot]).append(',').append(iterations[slot]).append(',')
+								.append(costs[slot]).append(',').append(sizes[slot]).append('\n');
+						for (int i = 0; i < line.length(); i++)
+							out.write(line.charAt(i));
+					} else {
+						data.writeLong(elapsedNanos[slot]);
+						data.writeLong(iterations[slot]);
+						data.writeDouble(costs[slot]);
+						data.writeInt(sizes[slot]);
+					}
+				}
+				tail = h;
+				if (done && tail == head)
+					break;
+				if (h == head)
+					LockSupport.parkNanos(this, IDLE_NANOS);
+			}
+			out.flush();
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Flushes every pending record, followed by the marker of the dropped
+	 * records if any, and stops the writer thread.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (dropped > 0 && failure == null)
+				writeDropMarker();
+			if (closeOut)
+				out.close();
+			else
+				out.flush();
+		} catch (IOException e) {
+			if (failure == null)
+				failure = e;
+		}
+		if (dropped > 0)
+			System.err.println("Convergence trace: " + dropped + " records dropped");
+		if (failure != null)
+			throw new UncheckedIOException(failure);
+	}
+
+	/**
+	 * Writes the marker of the dropped records, once the writer thread ended.
+	 */
+	private void writeDropMarker() throws IOException {
+		if (format == Format.CSV) {
+			out.write(("# " + dropped + " records dropped\n").getBytes(StandardCharsets.US_ASCII));
+		} else {
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeLong(DROP_MARKER);
+			data.writeLong(dropped);
+			data.writeDouble(Double.NaN);
+			data.writeInt(0);
+		}
+	}
+
+}
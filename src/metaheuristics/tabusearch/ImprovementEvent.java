@@ -0,0 +1,52 @@
+package metaheuristics.tabusearch;
+
+import java.util.List;
+
+import solutions.Solution;
+
+/**
+ * An improvement of the best solution of a search, as published by
+ * {@link ImprovementPublisher}. It is immutable, so that it can be handed to
+ * several subscribers running on other threads.
+ *
+ * @param <E>
+ *            Generic type of the candidate to enter a solution.
+ */
+public class ImprovementEvent<E> {
+
+	/**
+	 * the cost of the new best solution, as minimized by the search
+	 */
+	public final double cost;
+
+	/**
+	 * the iteration in which it was found
+	 */
+	public final long iteration;
+
+	/**
+	 * the search time when it was found, in nanoseconds
+	 */
+	public final long elapsedNanos;
+
+	/**
+	 * the elements of the new best solution
+	 */
+	public final List<E> elements;
+
+	/**
+	 * Creates an event from a solution, whose elements are copied.
+	 */
+	public ImprovementEvent(Solution<E> sol, long iteration, long elapsedNanos) {
+		this.cost = sol.cost;
+		this.iteration = iteration;
+		this.elapsedNanos = elapsedNanos;
+		this.elements = List.copyOf(sol);
+	}
+
+	@Override
+	public String toString() {
+		return "Improvement: cost=[" + cost + "], iteration=[" + iteration + "], elapsed=[" + elapsedNanos / 1e9 + "s], size=[" + elements.size() + "]";
+	}
+
+}
@@ -0,0 +1,208 @@
+package metaheuristics.tabusearch;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of the improvements of a search to any number of subscribers.
+ * Each subscriber has a bounded buffer and is served on an executor, never on
+ * the thread of the search: {@link #submit(Object)} only appends the item to
+ * each buffer, dropping the oldest item of a full buffer, so that a slow
+ * subscriber loses intermediate improvements instead of stalling the search.
+ * The last item, which is the best solution, is never dropped.
+ *
+ * @param <T>
+ *            Type of the items published.
+ */
+public class ImprovementPublisher<T> implements Flow.Publisher<T> {
+
+	private final Executor executor;
+	private final int capacity;
+	private final List<BufferedSubscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean closed;
+
+	/**
+	 * Creates a publisher.
+	 *
+	 * @param executor
+	 *            The executor on which the subscribers are called.
+	 * @param capacity
+	 *            The number of items buffered for each subscriber.
+	 */
+	public ImprovementPublisher(Executor executor, int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity must be positive");
+		this.executor = executor;
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		BufferedSubscription subscription = new BufferedSubscription(subscriber);
+		// listed before closed is read, so that a concurrent close() either
+		// is seen here or completes the subscription itself
+		subscriptions.add(subscription);
+		subscription.start(closed);
+	}
+
+	/**
+	 * @return whether some subscriber is attached, so that items need to be
+	 *         built at all.
+	 */
+	public boolean hasSubscribers() {
+		return !subscriptions.isEmpty();
+	}
+
+	/**
+	 * Publishes an item to every subscriber, without blocking.
+	 */
+	public void submit(T item) {
+		for (BufferedSubscription subscription : subscriptions)
+			subscription.offer(item);
+	}
+
+	/**
+	 * Completes every subscriber once its buffer is delivered. Later
+	 * subscribers are completed at once.
+	 */
+	public void close() {
+		closed = true;
+		for (BufferedSubscription subscription : subscriptions)
+			subscription.complete();
+	}
+
+	/**
+	 * @return the number of items dropped so far for all subscribers.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * The subscription of a subscriber, whose calls are serialized by a
+	 * work-in-progress counter: only the task that raised it from 0 delivers.
+	 */
+	private class BufferedSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super T> subscriber;
+		private final ArrayDeque<T> buffer = new ArrayDeque<>();
+		private final AtomicInteger wip = new AtomicInteger();
+		private long demand;
+		private boolean started, completing, done;
+		private Throwable error;
+
+		BufferedSubscription(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		/**
+		 * Starts the delivery. A {@link #complete()} by a concurrent close,
+		 * after the subscription was listed, is kept.
+		 */
+		void start(boolean complete) {
+			synchronized (this) {
+				completing |= complete;
+			}
+			schedule();
+		}
+
+		void offer(T item) {
+			synchronized (this) {
+				if (done || completing)
+					return;
+				if (buffer.size() == capacity) {
+					buffer.pollFirst();
+					dropped.incrementAndGet();
+				}
+				buffer.addLast(item);
+			}
+			schedule();
+		}
+
+		void complete() {
+			synchronized (this) {
+				completing = true;
+			}
+			schedule();
+		}
+
+		@Override
+		public void request(long n) {
+			synchronized (this) {
+				if (n <= 0)
+					error = new IllegalArgumentException("non-positive request: " + n);
+				else
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				done = true;
+				buffer.clear();
+			}
+			subscriptions.remove(this);
+		}
+
+		private void schedule() {
+			if (wip.getAndIncrement() == 0)
+				executor.execute(this::drain);
+		}
+
+		private void drain() {
+			int missed = wip.get();
+			while (true) {
+				if (!started) {
+					started = true;
+					subscriber.onSubscribe(this);
+				}
+				while (true) {
+					T item;
+					Throwable failure = null;
+					boolean finish = false;
+					synchronized (this) {
+						if (done)
+							break;
+						if (error != null) {
+							failure = error;
+							done = true;
+						} else if (demand > 0 && !buffer.isEmpty()) {
+							demand--;
+						} else if (completing && buffer.isEmpty()) {
+							finish = true;
+							done = true;
+						} else {
+							break;
+						}
+						item = failure == null && !finish ? buffer.pollFirst() : null;
+					}
+					if (failure != null) {
+						subscriptions.remove(this);
+						subscriber.onError(failure);
+					} else if (finish) {
+						subscriptions.remove(this);
+						subscriber.onComplete();
+					} else {
+						try {
+							subscriber.onNext(item);
+						} catch (RuntimeException e) {
+							// a failing subscriber is dropped, as required by Flow
+							cancel();
+						}
+					}
+				}
+				missed = wip.addAndGet(-missed);
+				if (missed == 0)
+					return;
+			}
+		}
+	}
+
+}
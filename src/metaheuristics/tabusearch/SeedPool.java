@@ -0,0 +1,155 @@
+package metaheuristics.tabusearch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import solutions.Solution;
+
+/**
+ * A pool of initial solutions for the Tabu Search, built by running the
+ * randomized constructive heuristic of a solver many times in parallel and
+ * keeping the best solutions that differ enough from each other. Each worker
+ * thread owns a solver created by a factory, and construction t is seeded
+ * from the t-th split of a {@link SplittableRandom}, so that the random
+ * streams are independent and the pool depends only on its seed, not on the
+ * number of threads.
+ *
+ * @param <E>
+ *            Generic type of the candidate to enter a solution.
+ */
+public class SeedPool<E> {
+
+	private final List<Solution<E>> seeds;
+	private final int constructions;
+
+	private SeedPool(List<Solution<E>> seeds, int constructions) {
+		this.seeds = seeds;
+		this.constructions = constructions;
+	}
+
+	/**
+	 * Builds a pool.
+	 *
+	 * @param factory
+	 *            Creates the solvers whose constructive heuristic is run; each
+	 *            solver is used by a single thread, so it must not share its
+	 *            objective function with another one.
+	 * @param constructions
+	 *            The number of solutions built.
+	 * @param keep
+	 *            The maximum number of solutions kept.
+	 * @param minDistance
+	 *            The minimum number of elements by which a kept solution differs
+	 *            from each better kept solution.
+	 * @param seed
+	 *            The seed of the random streams.
+	 * @param threads
+	 *            The number of worker threads.
+	 * @return The pool, with at least one solution.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public static <E> SeedPool<E> build(Supplier<? extends AbstractTS<E>> factory, int constructions, int keep, int minDistance, long seed, int threads) throws InterruptedException {
+		if (constructions < 1 || keep < 1)
+			throw new IllegalArgumentException("The pool needs at least one construction and one kept solution.");
+
+		long[] seeds = new long[constructions];
+		SplittableRandom root = new SplittableRandom(seed);
+		for (int t = 0; t < constructions; t++)
+			seeds[t] = root.split().nextLong();
+
+		ThreadLocal<AbstractTS<E>> solvers = ThreadLocal.withInitial(factory::get);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, constructions)));
+		List<Solution<E>> built = new ArrayList<>(constructions);
+		try {
+			List<Future<Solution<E>>> futures = new ArrayList<>(constructions);
+			for (int t = 0; t < constructions; t++) {
+				long s = seeds[t];
+				futures.add(executor.submit(() -> {
+					AbstractTS<E> solver = solvers.get();
+					solver.setSeed(s);
+					return new Solution<E>(solver.constructiveHeuristic());
+				}));
+			}
+			for (Future<Solution<E>> future : futures)
+				built.add(future.get());
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A construction of the seed pool failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// stable sort, so that ties keep the order of the constructions
+		built.sort(Comparator.comparingDouble(sol -> sol.cost));
+		List<Solution<E>> kept = new ArrayList<>();
+		List<Set<E>> keptSets = new ArrayList<>();
+		for (Solution<E> sol : built) {
+			if (kept.size() == keep)
+				break;
+			Set<E> set = new HashSet<>(sol);
+			boolean diverse = true;
+			for (Set<E> other : keptSets) {
+				if (distance(set, other) < minDistance) {
+					diverse = false;
+					break;
+				}
+			}
+			if (diverse) {
+				kept.add(sol);
+				keptSets.add(set);
+			}
+		}
+		return new SeedPool<>(kept, constructions);
+	}
+
+	/**
+	 * @return the number of elements in exactly one of the solutions.
+	 */
+	private static <E> int distance(Set<E> a, Set<E> b) {
+		int common = 0;
+		for (E e : a) {
+			if (b.contains(e))
+				common++;
+		}
+		return a.size() + b.size() - 2 * common;
+	}
+
+	/**
+	 * @return the kept solutions, in increasing order of cost.
+	 */
+	public List<Solution<E>> getSeeds() {
+		return seeds;
+	}
+
+	/**
+	 * @return the best solution of the pool.
+	 */
+	public Solution<E> getBest() {
+		return seeds.get(0);
+	}
+
+	/**
+	 * @return the number of solutions built.
+	 */
+	public int getConstructions() {
+		return constructions;
+	}
+
+	/**
+	 * @return the kept solution of index t modulo the size of the pool, so
+	 *         that several searches can be spread over the pool.
+	 */
+	public Solution<E> get(int t) {
+		return seeds.get(t % seeds.size());
+	}
+
+}
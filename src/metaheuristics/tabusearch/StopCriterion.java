@@ -0,0 +1,206 @@
+package metaheuristics.tabusearch;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * A condition that ends a Tabu Search, added to a search with
+ * {@link AbstractTS#addStopCriterion(StopCriterion)}. The search stops as soon
+ * as any of its criteria is met, besides its time limit. Criteria based on
+ * counters are evaluated after every iteration; timed criteria are evaluated
+ * only when the search reads its clock, which it does at an amortized rate of
+ * about once per {@link AbstractTS#CLOCK_GRANULARITY_NANOS}.
+ */
+public interface StopCriterion {
+
+	/**
+	 * @param search
+	 *            The search being evaluated.
+	 * @return true if the search must stop.
+	 */
+	boolean isMet(AbstractTS<?> search);
+
+	/**
+	 * @return true if the criterion depends on time, so that it must be
+	 *         evaluated only when the clock of the search is read.
+	 */
+	default boolean isTimed() {
+		return false;
+	}
+
+	/**
+	 * @return true if the criterion depends on the CPU time of the search.
+	 */
+	default boolean needsCpuTime() {
+		return false;
+	}
+
+	/**
+	 * Stops when the best solution reaches a cost (the search minimizes). It
+	 * is never met before the search has found a solution, see
+	 * {@link AbstractTS#getBestCost()}.
+	 *
+	 * @param cost
+	 *            The target cost.
+	 */
+	static StopCriterion targetCost(double cost) {
+		return search -> search.getBestCost() <= cost;
+	}
+
+	/**
+	 * Stops when the best solution reaches an upper bound of the maximized
+	 * objective function, i.e. when it is proven optimal. The bound is met up
+	 * to a relative tolerance of 1e-9, so that rounding errors in the cost of
+	 * the solution do not prevent the stop. Like {@link #targetCost(double)},
+	 * it is never met before the search has found a solution.
+	 *
+	 * @param bound
+	 *            The upper bound; the search minimizes minus the objective.
+	 */
+	static StopCriterion upperBound(double bound) {
+		double target = -bound + 1e-9 * Math.max(1, Math.abs(bound));
+		return search -> search.getBestCost() <= target;
+	}
+
+	/**
+	 * Like {@link #upperBound(double)}, for a bound computed while the search
+	 * runs, so that the search does not wait for it. The criterion is not met
+	 * until the bound is ready, nor if its computation fails; polling the
+	 * future does not block.
+	 *
+	 * @param bound
+	 *            The upper bound being computed.
+	 */
+	static StopCriterion upperBound(Future<Double> bound) {
+		return new StopCriterion() {
+			private StopCriterion ready;
+
+			@Override
+			public boolean isMet(AbstractTS<?> search) {
+				if (ready == null) {
+					if (!bound.isDone())
+						return false;
+					try {
+						ready = upperBound(bound.get());
+					} catch (InterruptedException | ExecutionException e) {
+						ready = s -> false;
+					}
+				}
+				return ready.isMet(search);
+			}
+		};
+	}
+
+	/**
+	 * Stops after a number of iterations.
+	 *
+	 * @param iterations
+	 *            The maximum number of iterations.
+	 */
+	static StopCriterion maxIterations(long iterations) {
+		return search -> search.getIterations() >= iterations;
+	}
+
+	/**
+	 * Stops after a number of iterations without improving the best solution.
+	 *
+	 * @param iterations
+	 *            The maximum number of iterations without improvement.
+	 */
+	static StopCriterion stagnationIterations(long iterations) {
+		return search -> search.getIterations() - search.getLastImprovementIteration() >= iterations;
+	}
+
+	/**
+	 * Stops after some search time without improving the best solution.
+	 *
+	 * @param seconds
+	 *            The maximum search time without improvement.
+	 */
+	static StopCriterion stagnationSeconds(double seconds) {
+		long nanos = (long) (seconds * 1e9);
+		return new StopCriterion() {
+			@Override
+			public boolean isMet(AbstractTS<?> search) {
+				return search.getClockNanos() - search.getLastImprovementNanos() >= nanos;
+			}
+
+			@Override
+			public boolean isTimed() {
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Stops after the search threads have spent some CPU time on the search,
+	 * as measured by {@link java.lang.management.ThreadMXBean}. Unlike the
+	 * wall-clock time limit, it is not affected by the load of the host.
+	 *
+	 * @param seconds
+	 *            The maximum CPU time of the search.
+	 */
+	static StopCriterion cpuTime(double seconds) {
+		long nanos = (long) (seconds * 1e9);
+		return new StopCriterion() {
+			@Override
+			public boolean isMet(AbstractTS<?> search) {
+				return search.getCpuNanos() >= nanos;
+			}
+
+			@Override
+			public boolean isTimed() {
+				return true;
+			}
+
+			@Override
+			public boolean needsCpuTime() {
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Stops when any of the criteria is met.
+	 */
+	static StopCriterion anyOf(StopCriterion... criteria) {
+		return combine(true, criteria);
+	}
+
+	/**
+	 * Stops when all of the criteria are met.
+	 */
+	static StopCriterion allOf(StopCriterion... criteria) {
+		return combine(false, criteria);
+	}
+
+	private static StopCriterion combine(boolean any, StopCriterion... criteria) {
+		boolean timed = false, cpu = false;
+		for (StopCriterion c : criteria) {
+			timed |= c.isTimed();
+			cpu |= c.needsCpuTime();
+		}
+		boolean isTimed = timed, needsCpuTime = cpu;
+		return new StopCriterion() {
+			@Override
+			public boolean isMet(AbstractTS<?> search) {
+				for (StopCriterion c : criteria) {
+					if (c.isMet(search) == any)
+						return any;
+				}
+				return !any;
+			}
+
+			@Override
+			public boolean isTimed() {
+				return isTimed;
+			}
+
+			@Override
+			public boolean needsCpuTime() {
+				return needsCpuTime;
+			}
+		};
+	}
+
+}
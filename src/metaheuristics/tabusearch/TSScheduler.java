@@ -0,0 +1,223 @@
+package metaheuristics.tabusearch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+
+import solutions.Solution;
+
+/**
+ * Time-slicing scheduler that multiplexes many Tabu Search jobs over a fixed
+ * number of worker threads, one per core. Jobs are advanced with
+ * {@link AbstractTS#step(int)} in slices of roughly {@code sliceNanos}, and the
+ * next slice always goes to the job with the least weighted service (stride
+ * scheduling): a job with priority p receives about p times the CPU time of
+ * a job with priority 1. The CPU time of every slice, measured on the worker
+ * thread by {@link ThreadMXBean}, is charged to a global CPU budget; once it
+ * is exhausted, every pending job is cancelled and completed with the best
+ * solution it has found, or with null if it never started.
+ */
+public class TSScheduler implements AutoCloseable {
+
+	/**
+	 * A solver being scheduled.
+	 */
+	private static class Job<E> {
+		final AbstractTS<E> solver;
+		final int priority;
+		final CompletableFuture<Solution<E>> future = new CompletableFuture<>();
+
+		/**
+		 * the weighted service received so far, in nanoseconds / priority
+		 */
+		double pass;
+
+		/**
+		 * the number of iterations of the next slice, adapted so that a
+		 * slice lasts about {@link TSScheduler#sliceNanos}
+		 */
+		int quantum = 1;
+
+		Job(AbstractTS<E> solver, int priority, double pass) {
+			this.solver = solver;
+			this.priority = priority;
+			this.pass = pass;
+		}
+
+		/**
+		 * Runs one slice of the job. A cancelled job that never started is
+		 * completed at once, without building its initial solution.
+		 *
+		 * @param cancelled
+		 *            Whether the job must stop.
+		 * @return true if the job must be scheduled again.
+		 */
+		boolean runSlice(boolean cancelled) {
+			try {
+				if (cancelled) {
+					solver.cancel();
+					if (!solver.isInitialized()) {
+						future.complete(null);
+						return false;
+					}
+				}
+				if (!solver.isInitialized())
+					solver.init();
+				if (solver.step(quantum))
+					return true;
+				future.complete(solver.bestSol);
+			} catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+			return false;
+		}
+	}
+
+	private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+	private final PriorityQueue<Job<?>> ready = new PriorityQueue<>((a, b) -> Double.compare(a.pass, b.pass));
+	private final Thread[] workers;
+	private final long sliceNanos;
+	private final long cpuBudgetNanos;
+	private long consumedNanos;
+	private boolean shutdown;
+
+	/**
+	 * the pass of the last job handed to a worker, given to new jobs so that
+	 * they do not monopolize the cores
+	 */
+	private double virtualTime;
+
+	/**
+	 * Creates the scheduler and starts its workers.
+	 *
+	 * @param cores
+	 *            The number of worker threads.
+	 * @param sliceNanos
+	 *            The target duration of a slice, in nanoseconds.
+	 * @param cpuBudgetNanos
+	 *            The CPU time shared by all jobs, in nanoseconds.
+	 */
+	public TSScheduler(int cores, long sliceNanos, long cpuBudgetNanos) {
+		if (!threadMXBean.isThreadCpuTimeSupported())
+			throw new UnsupportedOperationException("The JVM does not measure thread CPU time");
+		if (!threadMXBean.isThreadCpuTimeEnabled())
+			threadMXBean.setThreadCpuTimeEnabled(true);
+		this.sliceNanos = sliceNanos;
+		this.cpuBudgetNanos = cpuBudgetNanos;
+		this.workers = new Thread[cores];
+		for (int i = 0; i < cores; i++) {
+			workers[i] = new Thread(this::workLoop, "ts-scheduler-" + i);
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Submits a solver. It must not be stepped by anyone else while
+	 * scheduled. Its own time limit still applies, counted over the slices
+	 * it receives. Cancelling the returned future cancels the search.
+	 *
+	 * @param solver
+	 *            The solver, initialized or not.
+	 * @param priority
+	 *            The share of CPU time of the job relative to others, at
+	 *            least 1.
+	 * @return A future completed with the best solution of the job, or with
+	 *         null if the budget ran out before the job started.
+	 */
+	public synchronized <E> CompletableFuture<Solution<E>> submit(AbstractTS<E> solver, int priority) {
+		if (shutdown)
+			throw new IllegalStateException("Scheduler is shut down");
+		if (priority < 1)
+			throw new IllegalArgumentException("priority must be >= 1");
+		Job<E> job = new Job<>(solver, priority, virtualTime);
+		job.future.whenComplete((result, error) -> {
+			if (job.future.isCancelled())
+				solver.cancel();
+		});
+		ready.add(job);
+		notify();
+		return job.future;
+	}
+
+	/**
+	 * @return the CPU time consumed by all slices so far, in nanoseconds.
+	 */
+	public synchronized long getConsumedNanos() {
+		return consumedNanos;
+	}
+
+	/**
+	 * Takes the job with the least weighted service.
+	 *
+	 * @return the job, or null when the scheduler is shut down.
+	 */
+	private synchronized Job<?> take() throws InterruptedException {
+		while (ready.isEmpty() && !shutdown)
+			wait();
+		Job<?> job = ready.poll();
+		if (job != null)
+			virtualTime = job.pass;
+		return job;
+	}
+
+	/**
+	 * Charges the CPU time of a slice to the budget and reschedules its job.
+	 */
+	private synchronized void slice(Job<?> job, long cpuNanos, boolean again) {
+		consumedNanos += cpuNanos;
+		if (again) {
+			job.pass += (double) cpuNanos / job.priority;
+			ready.add(job);
+			notify();
+		}
+	}
+
+	private synchronized boolean budgetExhausted() {
+		return consumedNanos >= cpuBudgetNanos;
+	}
+
+	private void workLoop() {
+		try {
+			Job<?> job;
+			while ((job = take()) != null) {
+				boolean cancelled = job.future.isDone() || budgetExhausted();
+
+				long start = System.nanoTime();
+				long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+				boolean again = job.runSlice(cancelled);
+				long cpuNanos = threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+				long nanos = System.nanoTime() - start;
+
+				if (nanos < sliceNanos / 2)
+					job.quantum = (int) Math.min(Integer.MAX_VALUE / 2, job.quantum * 2L);
+				else if (nanos > sliceNanos * 2 && job.quantum > 1)
+					job.quantum /= 2;
+
+				slice(job, cpuNanos, again);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Stops accepting jobs and waits until every submitted job has completed.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			shutdown = true;
+			notifyAll();
+		}
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -23,6 +23,19 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 	 */
 	public final Integer size;
 
+	/**
+	 * Number of elements to be covered, equal to {@link #size} for the
+	 * instances read from a file.
+	 */
+	public final int elements;
+
+	/**
+	 * Constant added to x'.A.x, e.g. the contribution of the variables fixed
+	 * to 1 by {@link MAX_SC_QBF_Presolve}; 0 for the instances read from a
+	 * file.
+	 */
+	public final double offset;
+
 	/**
 	 * The array of numbers representing the domain.
 	 */
@@ -55,6 +68,52 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 	 */
 	public MAX_SC_QBF(String filename) throws IOException {
 		size = readInput(filename);
+		elements = size;
+		offset = 0;
+		variables = allocateVariables();
+	}
+
+	/**
+	 * Creates an instance from its coefficients and sets, e.g. a reduced
+	 * instance built by {@link MAX_SC_QBF_Presolve}.
+	 *
+	 * @param A
+	 *            The matrix of coefficients, which is not copied.
+	 * @param coverBits
+	 *            coverBits[i] = elements covered by set i, which are not copied.
+	 * @param elements
+	 *            The number of elements to be covered.
+	 * @param offset
+	 *            The constant added to x'.A.x.
+	 */
+	public MAX_SC_QBF(Double[][] A, BitSet[] coverBits, int elements, double offset) {
+		size = A.length;
+		this.elements = elements;
+		this.offset = offset;
+		this.A = A;
+		this.coverBits = coverBits;
+		S = new Integer[size][];
+		for (int i = 0; i < size; i++)
+			S[i] = coverBits[i].stream().boxed().toArray(Integer[]::new);
+		variables = allocateVariables();
+	}
+
+	/**
+	 * Creates an evaluator over the same instance as another one. The
+	 * coefficients and the sets are shared, only the working array of
+	 * variables is allocated again, so that each copy can be used by a
+	 * different thread without reading the instance file again.
+	 *
+	 * @param other
+	 *            The evaluator whose instance is shared.
+	 */
+	public MAX_SC_QBF(MAX_SC_QBF other) {
+		size = other.size;
+		elements = other.elements;
+		offset = other.offset;
+		A = other.A;
+		S = other.S;
+		coverBits = other.coverBits;
 		variables = allocateVariables();
 	}
 
@@ -129,7 +188,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 			aux = (double) 0;
 		}
 
-		return sum;
+		return sum + offset;
 
 	}
 
@@ -386,7 +445,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 	 * @throws IOException
 	 *             Necessary for I/O operations.
 	 */
-	protected Integer readInput(String filename) throws IOException {
+	private Integer readInput(String filename) throws IOException {
 
 		Reader fileInst = new BufferedReader(new FileReader(filename));
 		StreamTokenizer stok = new StreamTokenizer(fileInst);
@@ -445,7 +504,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 
     /** Union of the sets covereds by indexes in sol. */
     public BitSet coveredOf(Solution<Integer> sol) {
-        BitSet covered = new BitSet(size);
+        BitSet covered = new BitSet(elements);
         for (Integer idx : sol) {
             covered.or(coverBits[idx]);
         }
@@ -454,7 +513,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 
     /** Count current cover */
     public int[] coverCountOf(Solution<Integer> sol) {
-        int[] cc = new int[size];
+        int[] cc = new int[elements];
         for (Integer i : sol) {
             BitSet bs = coverBits[i];
             for (int k = bs.nextSetBit(0); k >= 0; k = bs.nextSetBit(k + 1)) cc[k]++;
@@ -465,7 +524,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
     /** How many elements becomes covered when inserting elem */
     protected int newlyCoveredBy(Integer elem, Solution<Integer> sol) {
         BitSet uncovered = coveredOf(sol);
-        uncovered.flip(0, size); // vira conjunto de descobertos
+        uncovered.flip(0, elements); // vira conjunto de descobertos
         BitSet bs = (BitSet) coverBits[elem].clone();
         bs.and(uncovered);
         return bs.cardinality();
@@ -495,7 +554,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 
     public int totalUncovered(Solution<Integer> sol) {
         BitSet uncovered = coveredOf(sol);
-        uncovered.flip(0, size);
+        uncovered.flip(0, elements);
         return uncovered.cardinality();
     }
 
@@ -505,7 +564,7 @@ public class MAX_SC_QBF implements Evaluator<Integer> {
 	 * 
 	 * @return a pointer to the array of domain variables.
 	 */
-	protected Double[] allocateVariables() {
+	private Double[] allocateVariables() {
 		Double[] _variables = new Double[size];
 		return _variables;
 	}
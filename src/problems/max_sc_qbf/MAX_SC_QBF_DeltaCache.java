@@ -0,0 +1,613 @@
+package problems.max_sc_qbf;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.IntPredicate;
+
+/**
+ * Incremental evaluation of MAX_SC_QBF moves around an incumbent solution.
+ * For every variable it keeps its gain, i.e. the variation of f(x) = x'.A.x
+ * when the variable alone is flipped to 1 with the others as they are, and
+ * for the set cover constraints it keeps how many times each element is
+ * covered, how many elements each set covers alone and how many uncovered
+ * elements each set would cover. With these, the variation of the objective
+ * function and the feasibility of insertions, removals and exchanges are
+ * obtained in O(1) (an exchange may need to scan the elements of the removed
+ * set), instead of the O(n) and O(n^2) evaluations of {@link MAX_SC_QBF}.
+ * Flipping a variable costs O(n) plus the number of (element, set) pairs it
+ * touches. The gains are computed from scratch every n flips, so that
+ * rounding errors do not accumulate along a long search.
+ * <p>
+ * All values refer to the maximization problem, regardless of the sign
+ * convention of the evaluator the cache was built from.
+ */
+public class MAX_SC_QBF_DeltaCache {
+
+	/**
+	 * number of variables (sets)
+	 */
+	public final int n;
+
+	/**
+	 * number of elements to be covered
+	 */
+	public final int m;
+
+	/**
+	 * constant added to f(x), see {@link MAX_SC_QBF#offset}
+	 */
+	public final double offset;
+
+	/**
+	 * Q[i][j] = A[i][j] + A[j][i] for i != j, and Q[i][i] = A[i][i]
+	 */
+	final double[][] Q;
+
+	/**
+	 * neighbors[i] = variables j != i with Q[i][j] != 0, whose gains change
+	 * when i is flipped
+	 */
+	final int[][] neighbors;
+
+	/**
+	 * covers[i] = elements covered by set i
+	 */
+	final int[][] covers;
+
+	/**
+	 * coveredBy[k] = sets covering element k
+	 */
+	final int[][] coveredBy;
+
+	/**
+	 * coverBits[i] = elements covered by set i
+	 */
+	final BitSet[] coverBits;
+
+	/**
+	 * minInteraction[i] = min over j != i of Q[i][j]
+	 */
+	private final double[] minInteraction;
+
+	/**
+	 * positiveInteraction[i] = sum over j != i of max(0, Q[i][j])
+	 */
+	private final double[] positiveInteraction;
+
+	private final boolean[] in;
+	private final double[] gain;
+	private final int[] coverCount;
+	private final int[] solelyCovered;
+	private final int[] newlyCovered;
+	private int uncovered;
+	private double value;
+
+	/**
+	 * number of flips since the gains were last computed from scratch
+	 */
+	private int flips;
+
+	/**
+	 * Creates the cache for an instance, initially for the empty solution.
+	 *
+	 * @param problem
+	 *            The MAX_SC_QBF instance.
+	 */
+	public MAX_SC_QBF_DeltaCache(MAX_SC_QBF problem) {
+		n = problem.size;
+		m = problem.elements;
+		offset = problem.offset;
+		Q = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			Q[i][i] = problem.A[i][i];
+			for (int j = i + 1; j < n; j++) {
+				Q[i][j] = Q[j][i] = problem.A[i][j] + problem.A[j][i];
+			}
+		}
+
+		neighbors = new int[n][];
+		for (int i = 0; i < n; i++) {
+			int[] row = new int[n];
+			int degree = 0;
+			for (int j = 0; j < n; j++) {
+				if (j != i && Q[i][j] != 0)
+					row[degree++] = j;
+			}
+			neighbors[i] = Arrays.copyOf(row, degree);
+		}
+
+		minInteraction = new double[n];
+		for (int i = 0; i < n; i++) {
+			double min = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < n; j++) {
+				if (j != i && Q[i][j] < min)
+					min = Q[i][j];
+			}
+			minInteraction[i] = min;
+		}
+
+		positiveInteraction = new double[n];
+		for (int i = 0; i < n; i++) {
+			double sum = 0;
+			for (int j : neighbors[i])
+				sum += Math.max(0, Q[i][j]);
+			positiveInteraction[i] = sum;
+		}
+
+		coverBits = problem.coverBits;
+		covers = new int[n][];
+		int[] degree = new int[m];
+		for (int i = 0; i < n; i++) {
+			covers[i] = coverBits[i].stream().toArray();
+			for (int k : covers[i])
+				degree[k]++;
+		}
+		coveredBy = new int[m][];
+		for (int k = 0; k < m; k++)
+			coveredBy[k] = new int[degree[k]];
+		int[] fill = new int[m];
+		for (int i = 0; i < n; i++) {
+			for (int k : covers[i])
+				coveredBy[k][fill[k]++] = i;
+		}
+
+		in = new boolean[n];
+		gain = new double[n];
+		coverCount = new int[m];
+		solelyCovered = new int[n];
+		newlyCovered = new int[n];
+		load(Collections.<Integer>emptyList());
+	}
+
+	/**
+	 * Recomputes every cached value for a solution, in O(n^2).
+	 *
+	 * @param sol
+	 *            The variables set to 1.
+	 */
+	public void reset(Collection<Integer> sol) {
+		load(sol);
+	}
+
+	/**
+	 * Implements {@link #reset(Collection)}, which the constructor cannot call
+	 * since subclasses may override it.
+	 */
+	private void load(Collection<Integer> sol) {
+		Arrays.fill(in, false);
+		Arrays.fill(coverCount, 0);
+		for (Integer i : sol) {
+			in[i] = true;
+			for (int k : covers[i])
+				coverCount[k]++;
+		}
+
+		recomputeGains();
+
+		uncovered = 0;
+		for (int k = 0; k < m; k++) {
+			if (coverCount[k] == 0)
+				uncovered++;
+		}
+		for (int i = 0; i < n; i++) {
+			int solely = 0, newly = 0;
+			for (int k : covers[i]) {
+				if (coverCount[k] == 1)
+					solely++;
+				else if (coverCount[k] == 0)
+					newly++;
+			}
+			solelyCovered[i] = solely;
+			newlyCovered[i] = newly;
+		}
+	}
+
+	/**
+	 * Computes the gains and the value of the solution from scratch, in
+	 * O(n^2), discarding the rounding errors accumulated by the flips.
+	 */
+	private void recomputeGains() {
+		value = offset;
+		for (int i = 0; i < n; i++) {
+			double g = Q[i][i];
+			double[] row = Q[i];
+			for (int j = 0; j < n; j++) {
+				if (in[j] && j != i)
+					g += row[j];
+			}
+			gain[i] = g;
+			if (in[i])
+				value += Q[i][i] + (g - Q[i][i]) / 2;
+		}
+		flips = 0;
+	}
+
+	/**
+	 * Writes the gains, the value and the number of flips since the last
+	 * recomputation, which differ from those of {@link #reset(Collection)} by
+	 * the rounding errors of the flips.
+	 *
+	 * @param out
+	 *            The stream receiving the state.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public void writeGains(DataOutput out) throws IOException {
+		for (int i = 0; i < n; i++)
+			out.writeDouble(gain[i]);
+		out.writeDouble(value);
+		out.writeInt(flips);
+	}
+
+	/**
+	 * Reads back the state written by {@link #writeGains(DataOutput)}, after a
+	 * {@link #reset(Collection)} to the same solution.
+	 *
+	 * @param in
+	 *            The stream holding the state.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	public void readGains(DataInput in) throws IOException {
+		for (int i = 0; i < n; i++)
+			gain[i] = in.readDouble();
+		value = in.readDouble();
+		flips = in.readInt();
+	}
+
+	/**
+	 * Sets a variable to 1.
+	 *
+	 * @param i
+	 *            The variable, which must be 0.
+	 */
+	public void add(int i) {
+		probeAdd(i);
+		if (++flips >= n)
+			recomputeGains();
+	}
+
+	/**
+	 * Sets a variable to 0.
+	 *
+	 * @param i
+	 *            The variable, which must be 1.
+	 */
+	public void remove(int i) {
+		probeRemove(i);
+		if (++flips >= n)
+			recomputeGains();
+	}
+
+	/**
+	 * Sets a variable to 1 as a trial, like {@link #add(int)} but without
+	 * counting the flip towards the next recomputation of the gains. The
+	 * trial must be undone by {@link #probeRemove(int)}, the trials in the
+	 * reverse order, so that the flips cancel out up to rounding errors.
+	 *
+	 * @param i
+	 *            The variable, which must be 0.
+	 */
+	public void probeAdd(int i) {
+		value += gain[i];
+		in[i] = true;
+		double[] row = Q[i];
+		for (int j : neighbors[i])
+			gain[j] += row[j];
+		for (int k : covers[i])
+			changeCoverCount(k, +1);
+	}
+
+	/**
+	 * Sets a variable to 0 without counting the flip, see
+	 * {@link #probeAdd(int)}.
+	 *
+	 * @param i
+	 *            The variable, which must be 1.
+	 */
+	public void probeRemove(int i) {
+		value -= gain[i];
+		in[i] = false;
+		double[] row = Q[i];
+		for (int j : neighbors[i])
+			gain[j] -= row[j];
+		for (int k : covers[i])
+			changeCoverCount(k, -1);
+	}
+
+	private void changeCoverCount(int k, int delta) {
+		int before = coverCount[k], after = before + delta;
+		coverCount[k] = after;
+		if (before == 0)
+			uncovered--;
+		if (after == 0)
+			uncovered++;
+		for (int j : coveredBy[k]) {
+			if (before == 1)
+				solelyCovered[j]--;
+			else if (before == 0)
+				newlyCovered[j]--;
+			if (after == 1)
+				solelyCovered[j]++;
+			else if (after == 0)
+				newlyCovered[j]++;
+		}
+	}
+
+	/**
+	 * @return whether the variable is 1.
+	 */
+	public boolean contains(int i) {
+		return in[i];
+	}
+
+	/**
+	 * @return the value of f(x) for the current solution.
+	 */
+	public double value() {
+		return value;
+	}
+
+	/**
+	 * @return the variation of f(x) when only variable i is flipped to 1,
+	 *         regardless of its current value.
+	 */
+	public double gain(int i) {
+		return gain[i];
+	}
+
+	/**
+	 * @return the coefficient Q_ij = A_ij + A_ji of the pair of variables.
+	 */
+	public double interaction(int i, int j) {
+		return Q[i][j];
+	}
+
+	/**
+	 * @return the elements covered by set i; the array must not be modified.
+	 */
+	public int[] covers(int i) {
+		return covers[i];
+	}
+
+	/**
+	 * @return the sets covering element k; the array must not be modified.
+	 */
+	public int[] coveredBy(int k) {
+		return coveredBy[k];
+	}
+
+	/**
+	 * Computes the candidate lists of a granular neighborhood: for each
+	 * variable, the k variables with the strongest interaction |Q_ij| and the
+	 * k sets sharing the most elements with it, in O(n^2 log n + n c) for c
+	 * the total size of the covers.
+	 * The lists are symmetric, i.e. j is a partner of i if and only if i is
+	 * a partner of j, so that each pair is found from either variable.
+	 *
+	 * @param k
+	 *            The number of partners chosen by each criterion.
+	 * @return partners[i] = the partners of variable i, in increasing order.
+	 */
+	public int[][] partners(int k) {
+		BitSet[] chosen = new BitSet[n];
+		for (int i = 0; i < n; i++)
+			chosen[i] = new BitSet(n);
+
+		Integer[] order = new Integer[n];
+		int[] shared = new int[n];
+		for (int i = 0; i < n; i++) {
+			double[] row = Q[i];
+			for (int j = 0; j < n; j++) {
+				order[j] = j;
+				int common = 0;
+				for (int e : covers[i]) {
+					if (coverBits[j].get(e))
+						common++;
+				}
+				shared[j] = common;
+			}
+			Arrays.sort(order, (a, b) -> Double.compare(Math.abs(row[b]), Math.abs(row[a])));
+			choose(chosen, i, order, k, j -> row[j] != 0);
+			Arrays.sort(order, (a, b) -> Integer.compare(shared[b], shared[a]));
+			choose(chosen, i, order, k, j -> shared[j] > 0);
+		}
+
+		int[][] partners = new int[n][];
+		for (int i = 0; i < n; i++)
+			partners[i] = chosen[i].stream().toArray();
+		return partners;
+	}
+
+	/**
+	 * Makes the first k variables of order accepted by a predicate, other
+	 * than i, partners of i.
+	 */
+	private static void choose(BitSet[] chosen, int i, Integer[] order, int k, IntPredicate accept) {
+		int taken = 0;
+		for (int t = 0; t < order.length && taken < k; t++) {
+			int j = order[t];
+			if (j == i || !accept.test(j))
+				continue;
+			chosen[i].set(j);
+			chosen[j].set(i);
+			taken++;
+		}
+	}
+
+	/**
+	 * @return the variation of f(x) when variable i, currently 0, is inserted.
+	 */
+	public double insertionDelta(int i) {
+		return gain[i];
+	}
+
+	/**
+	 * @return the variation of f(x) when variable i, currently 1, is removed.
+	 */
+	public double removalDelta(int i) {
+		return -gain[i];
+	}
+
+	/**
+	 * @return the variation of f(x) when variable in, currently 0, is inserted
+	 *         and variable out, currently 1, is removed.
+	 */
+	public double exchangeDelta(int in, int out) {
+		return gain[in] - gain[out] - Q[in][out];
+	}
+
+	/**
+	 * @return an upper bound, g_in - min_j Q_in,j, of the variation of f(x)
+	 *         minus g_out of any exchange inserting variable in, so that
+	 *         exchangeDelta(in, out) &lt;= exchangeBound(in) - gain(out).
+	 */
+	public double exchangeBound(int in) {
+		return gain[in] - minInteraction[in];
+	}
+
+	/**
+	 * @return an upper bound, g_i + sum_j max(0, Q_i,j), of the variation of
+	 *         f(x) when variable i is inserted after any other insertions.
+	 */
+	public double insertionBound(int i) {
+		return gain[i] + positiveInteraction[i];
+	}
+
+	/**
+	 * @return the number of elements not covered by the current solution.
+	 */
+	public int uncovered() {
+		return uncovered;
+	}
+
+	/**
+	 * @return the number of elements of set i covered by no other selected set.
+	 */
+	public int solelyCovered(int i) {
+		return solelyCovered[i];
+	}
+
+	/**
+	 * @return the number of uncovered elements that set i covers.
+	 */
+	public int newlyCovered(int i) {
+		return newlyCovered[i];
+	}
+
+	/**
+	 * @return whether set i covers element k.
+	 */
+	public boolean covers(int i, int k) {
+		return coverBits[i].get(k);
+	}
+
+	/**
+	 * Finds the element that restricts the most the exchanges removing a set:
+	 * among the elements covered only by the set, the one covered by the
+	 * fewest sets. An exchange removing the set keeps the cover only if the
+	 * incoming set is one of coveredBy(pivot).
+	 *
+	 * @param out
+	 *            The set, currently 1.
+	 * @return the pivot element, or -1 if the set covers no element alone.
+	 */
+	public int solePivot(int out) {
+		if (solelyCovered[out] == 0)
+			return -1;
+		int pivot = -1;
+		for (int k : covers[out]) {
+			if (coverCount[k] == 1 && (pivot < 0 || coveredBy[k].length < coveredBy[pivot].length))
+				pivot = k;
+		}
+		return pivot;
+	}
+
+	/**
+	 * A necessary condition, checked in O(1), for an exchange by set in to
+	 * leave no element uncovered, given the pivot of the removed set.
+	 *
+	 * @param in
+	 *            The incoming set, currently 0.
+	 * @param pivot
+	 *            The {@link #solePivot(int)} of the removed set.
+	 * @return false if the exchange surely uncovers some element.
+	 */
+	public boolean mayKeepCover(int in, int pivot) {
+		return newlyCovered[in] == uncovered && (pivot < 0 || coverBits[in].get(pivot));
+	}
+
+	/**
+	 * @return the number of elements covered exactly once, by set out, that
+	 *         set in does not cover, i.e. that an exchange would uncover.
+	 */
+	public int newlyUncoveredByExchange(int in, int out) {
+		if (solelyCovered[out] == 0)
+			return 0;
+		BitSet bsIn = coverBits[in];
+		int t = 0;
+		for (int k : covers[out]) {
+			if (coverCount[k] == 1 && !bsIn.get(k))
+				t++;
+		}
+		return t;
+	}
+
+	/**
+	 * @return the number of uncovered elements after inserting variables i
+	 *         and j, both currently 0.
+	 */
+	public int uncoveredAfterPairInsertion(int i, int j) {
+		int t = uncovered - newlyCovered[i] - newlyCovered[j];
+		if (newlyCovered[i] > 0 && newlyCovered[j] > 0) {
+			BitSet bsJ = coverBits[j];
+			for (int k : covers[i]) {
+				if (coverCount[k] == 0 && bsJ.get(k))
+					t++;
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * @return the number of uncovered elements after removing variables i and
+	 *         j, both currently 1.
+	 */
+	public int uncoveredAfterPairRemoval(int i, int j) {
+		int t = uncovered + solelyCovered[i] + solelyCovered[j];
+		BitSet bsJ = coverBits[j];
+		for (int k : covers[i]) {
+			if (coverCount[k] == 2 && bsJ.get(k))
+				t++;
+		}
+		return t;
+	}
+
+	/**
+	 * @return the number of uncovered elements after inserting variable i.
+	 */
+	public int uncoveredAfterInsertion(int i) {
+		return uncovered - newlyCovered[i];
+	}
+
+	/**
+	 * @return the number of uncovered elements after removing variable i.
+	 */
+	public int uncoveredAfterRemoval(int i) {
+		return uncovered + solelyCovered[i];
+	}
+
+	/**
+	 * @return the number of uncovered elements after exchanging variable out
+	 *         by variable in.
+	 */
+	public int uncoveredAfterExchange(int in, int out) {
+		return uncovered - newlyCovered[in] + newlyUncoveredByExchange(in, out);
+	}
+
+}
@@ -9,6 +9,10 @@ public class MAX_SC_QBF_Inverse extends MAX_SC_QBF {
         super(filename);
     }
 
+    public MAX_SC_QBF_Inverse(MAX_SC_QBF other) {
+        super(other);
+    }
+
     @Override
     public Double evaluateMAXSCQBF() {
         return -super.evaluateMAXSCQBF();
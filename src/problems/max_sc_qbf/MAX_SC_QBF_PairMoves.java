@@ -0,0 +1,232 @@
+package problems.max_sc_qbf;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the best feasible move that inserts or removes a pair of variables of
+ * a MAX_SC_QBF solution, from the gains kept by a {@link MAX_SC_QBF_DeltaCache}.
+ * Inserting i and j changes f(x) by g_i + g_j + Q_ij and removing them by
+ * -g_i - g_j + Q_ij, so each pair costs O(1). Only unordered pairs are
+ * visited, in decreasing order of the gain bound g_i + g_j + max_j Q_ij (with
+ * the sign of the gains reversed for removals), so that most of the grid is
+ * pruned once a good pair is known. For large candidate sets the grid is
+ * split by its first variable among the threads of the common pool. The result
+ * does not depend on the number of threads: ties are broken by the order of
+ * the candidates. The pairs can be restricted to a granular neighborhood. A search can be interrupted, in which case it returns the
+ * best move among the rows it completed.
+ */
+public class MAX_SC_QBF_PairMoves {
+
+	/**
+	 * A pair move.
+	 */
+	public static class Move {
+		public final int first, second;
+
+		/**
+		 * the variation of f(x) caused by the move
+		 */
+		public final double delta;
+
+		Move(int first, int second, double delta) {
+			this.first = first;
+			this.second = second;
+			this.delta = delta;
+		}
+	}
+
+	/**
+	 * Decides whether a pair move may be taken, e.g. by its tabu status.
+	 */
+	@FunctionalInterface
+	public interface Admissibility {
+		boolean test(int first, int second, double delta);
+	}
+
+	/**
+	 * Below this number of candidates the grid is visited by a single thread.
+	 */
+	public static final int PARALLEL_THRESHOLD = 256;
+
+	private final MAX_SC_QBF_DeltaCache cache;
+
+	/**
+	 * rowMax[i] = max over j != i of Q[i][j]
+	 */
+	private final double[] rowMax;
+	private final double globalMax;
+
+	/**
+	 * partner[i] = the variables that may be paired with i, or null if every
+	 * pair may be visited
+	 */
+	private BitSet[] partner;
+
+	/**
+	 * Creates the engine for the solution kept by a cache.
+	 *
+	 * @param cache
+	 *            The cache, which must be kept up to date by its owner.
+	 */
+	public MAX_SC_QBF_PairMoves(MAX_SC_QBF_DeltaCache cache) {
+		this.cache = cache;
+		int n = cache.n;
+		rowMax = new double[n];
+		double max = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			double m = Double.NEGATIVE_INFINITY;
+			for (int j = 0; j < n; j++) {
+				if (j != i && cache.Q[i][j] > m)
+					m = cache.Q[i][j];
+			}
+			rowMax[i] = m;
+			max = Math.max(max, m);
+		}
+		globalMax = max;
+	}
+
+	/**
+	 * Restricts the pairs visited to a granular neighborhood.
+	 *
+	 * @param partners
+	 *            The symmetric candidate lists of each variable, see
+	 *            {@link MAX_SC_QBF_DeltaCache#partners(int)}, or null to visit
+	 *            every pair.
+	 */
+	public void setPartners(int[][] partners) {
+		if (partners == null) {
+			partner = null;
+			return;
+		}
+		partner = new BitSet[cache.n];
+		for (int i = 0; i < cache.n; i++) {
+			partner[i] = new BitSet(cache.n);
+			for (int j : partners[i])
+				partner[i].set(j);
+		}
+	}
+
+	/**
+	 * Finds the best feasible and admissible insertion of two variables.
+	 *
+	 * @param candidates
+	 *            The variables, currently 0, that may be inserted.
+	 * @param admissible
+	 *            Decides whether a move may be taken.
+	 * @param expired
+	 *            Polled before each row of the grid; the search stops when it
+	 *            returns true.
+	 * @return The best move, or null if there is none.
+	 */
+	public Move bestInsertion(int[] candidates, Admissibility admissible, BooleanSupplier expired) {
+		return best(candidates, 1, admissible, expired);
+	}
+
+	/**
+	 * Finds the best feasible and admissible removal of two variables.
+	 *
+	 * @param members
+	 *            The variables, currently 1, that may be removed.
+	 * @param admissible
+	 *            Decides whether a move may be taken.
+	 * @param expired
+	 *            Polled before each row of the grid; the search stops when it
+	 *            returns true.
+	 * @return The best move, or null if there is none.
+	 */
+	public Move bestRemoval(int[] members, Admissibility admissible, BooleanSupplier expired) {
+		if (cache.uncovered() == 0) {
+			// only sets covering no element alone can be removed
+			members = Arrays.stream(members).filter(i -> cache.solelyCovered(i) == 0).toArray();
+		}
+		return best(members, -1, admissible, expired);
+	}
+
+	/**
+	 * Finds the best pair move, where sign is 1 for insertions and -1 for
+	 * removals, so that the move changes f(x) by sign * (g_i + g_j) + Q_ij.
+	 */
+	private Move best(int[] vars, int sign, Admissibility admissible, BooleanSupplier expired) {
+		int m = vars.length;
+		if (m < 2)
+			return null;
+
+		// candidates in decreasing order of signed gain, ties by their order
+		double[] gain = new double[m];
+		Integer[] order = new Integer[m];
+		for (int a = 0; a < m; a++) {
+			gain[a] = sign * cache.gain(vars[a]);
+			order[a] = a;
+		}
+		Arrays.sort(order, (a, b) -> gain[a] != gain[b] ? Double.compare(gain[b], gain[a]) : Integer.compare(a, b));
+		int[] sorted = new int[m];
+		double[] g = new double[m];
+		for (int a = 0; a < m; a++) {
+			sorted[a] = vars[order[a]];
+			g[a] = gain[order[a]];
+		}
+
+		SharedBound bound = new SharedBound();
+		IntStream rows = IntStream.range(0, m - 1);
+		if (m >= PARALLEL_THRESHOLD)
+			rows = rows.parallel();
+		return rows.mapToObj(a -> expired.getAsBoolean() ? null : bestInRow(a, sorted, g, sign, admissible, bound))
+				.reduce(null, (x, y) -> x == null || (y != null && y.delta > x.delta) ? y : x);
+	}
+
+	/**
+	 * Finds the best pair whose first variable is sorted[a] and whose second
+	 * variable comes after it.
+	 */
+	private Move bestInRow(int a, int[] sorted, double[] g, int sign, Admissibility admissible, SharedBound bound) {
+		int i = sorted[a];
+		double gi = g[a];
+		if (gi + g[a + 1] + globalMax < bound.get())
+			return null;
+
+		double[] row = cache.Q[i];
+		BitSet partners = partner != null ? partner[i] : null;
+		double best = Double.NEGATIVE_INFINITY;
+		int bestJ = -1;
+		for (int b = a + 1; b < sorted.length; b++) {
+			if (gi + g[b] + rowMax[i] < Math.max(best, bound.get()))
+				break;
+			int j = sorted[b];
+			if (partners != null && !partners.get(j))
+				continue;
+			double delta = gi + g[b] + row[j];
+			if (delta > best && delta >= bound.get() && admissible.test(i, j, delta) && isFeasible(i, j, sign)) {
+				best = delta;
+				bestJ = j;
+			}
+		}
+		if (bestJ < 0)
+			return null;
+		bound.raise(best);
+		return new Move(i, bestJ, best);
+	}
+
+	private boolean isFeasible(int i, int j, int sign) {
+		return (sign > 0 ? cache.uncoveredAfterPairInsertion(i, j) : cache.uncoveredAfterPairRemoval(i, j)) == 0;
+	}
+
+	/**
+	 * The value of the best move found by any thread, used for pruning.
+	 */
+	private static class SharedBound {
+		private volatile double value = Double.NEGATIVE_INFINITY;
+
+		double get() {
+			return value;
+		}
+
+		synchronized void raise(double v) {
+			if (v > value)
+				value = v;
+		}
+	}
+
+}
@@ -0,0 +1,351 @@
+package problems.max_sc_qbf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import problems.qbf.QBF_UpperBound;
+import solutions.Solution;
+
+/**
+ * Reduces a MAX_SC_QBF instance before the search, by fixing variables whose
+ * value in some optimal solution is known. The reductions, applied until none
+ * applies any more, are:
+ * <ul>
+ * <li>forced sets: a set that is the only one left covering some uncovered
+ * element is fixed to 1;</li>
+ * <li>persistency: a set whose gain is non-negative whatever the other
+ * variables, i.e. Q_ii + sum of the negative Q_ij &gt;= 0, is fixed to 1; a
+ * set covering no uncovered element whose gain is never positive is fixed to
+ * 0;</li>
+ * <li>dominance: a set j whose gain is never positive is fixed to 0 if some
+ * other set i covers every uncovered element of j, with Q_ii &gt;= Q_jj and
+ * Q_ik &gt;= Q_jk for every other free variable k. Exchanging j by i never
+ * loses, and removing j when i is selected neither. Sets with identical
+ * coverage are the special case in which both cover the same elements.</li>
+ * </ul>
+ * Each reduction keeps some optimal solution of the instance. Fixing a
+ * variable to 1 moves its interactions with the free variables to their
+ * diagonal coefficients and its contribution to a constant, so that the
+ * reduced instance has the same value as the original one for every
+ * solution, and covers only the elements left uncovered by the fixed sets.
+ * The same reduction gives the subproblems of a large neighborhood search,
+ * see {@link #fixOutside(MAX_SC_QBF, Solution, int[])}.
+ */
+public class MAX_SC_QBF_Presolve {
+
+	private static final int FREE = -1;
+
+	private final MAX_SC_QBF original;
+	private final MAX_SC_QBF reduced;
+
+	/**
+	 * map[i] = the original index of variable i of the reduced instance
+	 */
+	private final int[] map;
+
+	/**
+	 * the original indexes of the variables fixed to 1
+	 */
+	private final int[] fixedToOne;
+	private final int fixedToZero, forced;
+
+	/**
+	 * Reduces an instance, in O(n^2) per pass plus O(n^3) for the dominance
+	 * tests of the sets whose gain is never positive.
+	 *
+	 * @param original
+	 *            The instance, which is not modified.
+	 */
+	public MAX_SC_QBF_Presolve(MAX_SC_QBF original) {
+		this(original, null);
+	}
+
+	/**
+	 * Fixes the variables given, without applying any reduction.
+	 *
+	 * @param fixing
+	 *            fixing[i] = the value of variable i, or {@link #FREE}; null
+	 *            to apply the reductions instead.
+	 */
+	private MAX_SC_QBF_Presolve(MAX_SC_QBF original, int[] fixing) {
+		this.original = original;
+		int n = original.size;
+		double[][] Q = new double[n][n];
+		double[] diag = new double[n];
+		for (int i = 0; i < n; i++) {
+			diag[i] = original.A[i][i];
+			for (int j = i + 1; j < n; j++)
+				Q[i][j] = Q[j][i] = original.A[i][j] + original.A[j][i];
+		}
+
+		int[] fix = new int[n];
+		Arrays.fill(fix, FREE);
+		BitSet covered = new BitSet(original.elements);
+		double offset = original.offset;
+		int forcedCount = 0, zeroCount = 0;
+
+		if (fixing != null) {
+			for (int i = 0; i < n; i++) {
+				if (fixing[i] == 0) {
+					fix[i] = 0;
+					zeroCount++;
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				if (fixing[i] == 1)
+					offset += fixToOne(i, fix, Q, diag, covered);
+			}
+		} else {
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+
+				// forced sets
+				for (int k = covered.nextClearBit(0); k < original.elements; k = covered.nextClearBit(k + 1)) {
+					int only = -1, count = 0;
+					for (int i = 0; i < n && count < 2; i++) {
+						if (fix[i] == FREE && original.coverBits[i].get(k)) {
+							only = i;
+							count++;
+						}
+					}
+					if (count == 1) {
+						offset += fixToOne(only, fix, Q, diag, covered);
+						forcedCount++;
+						changed = true;
+					}
+				}
+
+				// persistency and dominance
+				for (int i = 0; i < n; i++) {
+					if (fix[i] != FREE)
+						continue;
+					double lower = diag[i], upper = diag[i];
+					for (int j = 0; j < n; j++) {
+						if (j != i && fix[j] == FREE) {
+							lower += Math.min(0, Q[i][j]);
+							upper += Math.max(0, Q[i][j]);
+						}
+					}
+					if (lower >= 0) {
+						offset += fixToOne(i, fix, Q, diag, covered);
+						changed = true;
+					} else if (upper <= 0 && (!original.coverBits[i].intersects(uncovered(covered)) || isDominated(i, fix, Q, diag, covered))) {
+						fix[i] = 0;
+						zeroCount++;
+						changed = true;
+					}
+				}
+			}
+		}
+
+		// the reduced instance, over the free variables and uncovered elements
+		List<Integer> free = new ArrayList<>();
+		List<Integer> ones = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			if (fix[i] == FREE)
+				free.add(i);
+			else if (fix[i] == 1)
+				ones.add(i);
+		}
+		map = free.stream().mapToInt(Integer::intValue).toArray();
+		fixedToOne = ones.stream().mapToInt(Integer::intValue).toArray();
+		fixedToZero = zeroCount;
+		forced = forcedCount;
+
+		int[] element = new int[original.elements];
+		int m = 0;
+		for (int k = 0; k < original.elements; k++)
+			element[k] = covered.get(k) ? -1 : m++;
+
+		int r = map.length;
+		Double[][] A = new Double[r][r];
+		BitSet[] coverBits = new BitSet[r];
+		for (int a = 0; a < r; a++) {
+			A[a][a] = diag[map[a]];
+			for (int b = a + 1; b < r; b++) {
+				A[a][b] = Q[map[a]][map[b]];
+				A[b][a] = 0.0;
+			}
+			BitSet bs = new BitSet(m);
+			BitSet orig = original.coverBits[map[a]];
+			for (int k = orig.nextSetBit(0); k >= 0; k = orig.nextSetBit(k + 1)) {
+				if (element[k] >= 0)
+					bs.set(element[k]);
+			}
+			coverBits[a] = bs;
+		}
+		reduced = new MAX_SC_QBF(A, coverBits, m, offset);
+	}
+
+	/**
+	 * Fixes a variable to 1, moving its interactions with the free variables
+	 * to their diagonal coefficients.
+	 *
+	 * @return the contribution of the variable to the constant term.
+	 */
+	private double fixToOne(int i, int[] fix, double[][] Q, double[] diag, BitSet covered) {
+		fix[i] = 1;
+		for (int j = 0; j < fix.length; j++) {
+			if (fix[j] == FREE)
+				diag[j] += Q[i][j];
+		}
+		covered.or(original.coverBits[i]);
+		return diag[i];
+	}
+
+	/**
+	 * @return whether some other free set dominates set j, see the class
+	 *         description.
+	 */
+	private boolean isDominated(int j, int[] fix, double[][] Q, double[] diag, BitSet covered) {
+		BitSet needed = (BitSet) original.coverBits[j].clone();
+		needed.andNot(covered);
+		candidates: for (int i = 0; i < fix.length; i++) {
+			if (i == j || fix[i] != FREE || diag[i] < diag[j])
+				continue;
+			BitSet missing = (BitSet) needed.clone();
+			missing.andNot(original.coverBits[i]);
+			if (!missing.isEmpty())
+				continue;
+			for (int k = 0; k < fix.length; k++) {
+				if (k != i && k != j && fix[k] == FREE && Q[i][k] < Q[j][k])
+					continue candidates;
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private BitSet uncovered(BitSet covered) {
+		BitSet uncovered = new BitSet(original.elements);
+		uncovered.set(0, original.elements);
+		uncovered.andNot(covered);
+		return uncovered;
+	}
+
+	/**
+	 * Fixes every variable outside a subset at its value in a solution, so
+	 * that the reduced instance is the subproblem over the subset. The
+	 * elements covered by the fixed sets are dropped, and the remaining ones
+	 * must be covered by the free sets.
+	 *
+	 * @param original
+	 *            The instance, which is not modified.
+	 * @param sol
+	 *            The solution giving the values of the fixed variables.
+	 * @param free
+	 *            The indexes of the variables left free.
+	 * @return The subproblem, whose {@link #expand(Solution)} completes its
+	 *         solutions with the fixed variables of sol.
+	 */
+	public static MAX_SC_QBF_Presolve fixOutside(MAX_SC_QBF original, Solution<Integer> sol, int[] free) {
+		int[] fixing = new int[original.size];
+		for (Integer i : sol)
+			fixing[i] = 1;
+		for (int i : free)
+			fixing[i] = FREE;
+		return new MAX_SC_QBF_Presolve(original, fixing);
+	}
+
+	/**
+	 * @return the reduced instance, whose value for any solution equals the
+	 *         value of the original instance for the {@link #expand(Solution)}
+	 *         of the solution.
+	 */
+	public MAX_SC_QBF getReduced() {
+		return reduced;
+	}
+
+	/**
+	 * Bounds the optimal value of the original instance by the bounds of the
+	 * reduced one, which has the same optimal value, with the Lagrangian
+	 * multipliers of its set cover constraints, see {@link QBF_UpperBound}.
+	 *
+	 * @return an upper bound of the optimal value of the original instance.
+	 */
+	public double upperBound() {
+		if (reduced.size == 0)
+			return reduced.offset;
+		List<List<Integer>> sets = new ArrayList<>();
+		for (int k = 0; k < reduced.elements; k++)
+			sets.add(new ArrayList<>());
+		for (int i = 0; i < reduced.size; i++) {
+			for (Integer k : reduced.S[i])
+				sets.get(k).add(i);
+		}
+		int[][] coverers = new int[reduced.elements][];
+		for (int k = 0; k < reduced.elements; k++)
+			coverers[k] = sets.get(k).stream().mapToInt(Integer::intValue).toArray();
+		return new QBF_UpperBound(reduced.A, reduced.offset, coverers).compute();
+	}
+
+	/**
+	 * @return the original index of variable i of the reduced instance.
+	 */
+	public int originalIndex(int i) {
+		return map[i];
+	}
+
+	/**
+	 * Maps a solution of the reduced instance back to the original instance,
+	 * adding the variables fixed to 1.
+	 *
+	 * @param sol
+	 *            The solution of the reduced instance.
+	 * @return The solution of the original instance, with the same cost.
+	 */
+	public Solution<Integer> expand(Solution<Integer> sol) {
+		Solution<Integer> expanded = new Solution<Integer>();
+		for (int i : fixedToOne)
+			expanded.add(i);
+		for (Integer i : sol)
+			expanded.add(map[i]);
+		expanded.cost = sol.cost;
+		return expanded;
+	}
+
+	/**
+	 * Maps a solution of the original instance to the reduced instance,
+	 * keeping its free variables.
+	 *
+	 * @param sol
+	 *            The solution of the original instance.
+	 * @return The solution of the reduced instance, with no cost.
+	 */
+	public Solution<Integer> restrict(Solution<Integer> sol) {
+		int[] index = new int[original.size];
+		Arrays.fill(index, -1);
+		for (int a = 0; a < map.length; a++)
+			index[map[a]] = a;
+		Solution<Integer> restricted = new Solution<Integer>();
+		for (Integer i : sol) {
+			if (index[i] >= 0)
+				restricted.add(index[i]);
+		}
+		return restricted;
+	}
+
+	/**
+	 * @return the number of variables fixed to 1.
+	 */
+	public int getFixedToOne() {
+		return fixedToOne.length;
+	}
+
+	/**
+	 * @return the number of variables fixed to 0.
+	 */
+	public int getFixedToZero() {
+		return fixedToZero;
+	}
+
+	@Override
+	public String toString() {
+		return "Presolve: n=" + original.size + " -> " + reduced.size + ", elements=" + original.elements + " -> " + reduced.elements
+				+ ", fixed to 1=" + fixedToOne.length + " (forced " + forced + "), fixed to 0=" + fixedToZero + ", offset=" + reduced.offset;
+	}
+
+}
@@ -0,0 +1,396 @@
+package problems.max_sc_qbf.solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import problems.max_sc_qbf.MAX_SC_QBF;
+import solutions.Solution;
+
+/**
+ * Exact branch-and-bound for MAX_SC_QBF instances of at most
+ * {@link #MAX_SIZE} variables, for which a solution is a bit mask and the
+ * covered elements a bitset. The variables are decided in a fixed order, so
+ * that the undecided variables always form a suffix of it, and the search
+ * prunes a node when:
+ * <ul>
+ * <li>some uncovered element is covered by no undecided set, computed from
+ * the union of the covers of each suffix;</li>
+ * <li>its upper bound, the value of the selected sets plus, for each
+ * undecided variable i, max(0, g_i + sum of the positive Q_ij over the
+ * undecided j after i), cannot beat the incumbent. The sums over the suffix
+ * do not depend on the decisions, so the bound costs O(n) per node.</li>
+ * </ul>
+ * The tree is split at a small depth into subtrees solved by a thread pool,
+ * which share the incumbent. The search stops when the tree is exhausted, in
+ * which case the incumbent is optimal, or at its deadline.
+ */
+public class BB_MAX_SC_QBF {
+
+	/**
+	 * The largest number of variables supported.
+	 */
+	public static final int MAX_SIZE = 64;
+
+	/**
+	 * The largest number of variables that the drivers solve by
+	 * branch-and-bound unless told otherwise. The bundled instances of 50
+	 * sets are proven optimal in less than a minute.
+	 */
+	public static final int DEFAULT_SIZE = 50;
+
+	/**
+	 * Number of variables decided before the tree is split into subtrees.
+	 */
+	private static final int SPLIT_DEPTH = 6;
+
+	private final MAX_SC_QBF problem;
+	private final int n, words;
+
+	/**
+	 * order[p] = the variable decided at depth p
+	 */
+	private final int[] order;
+
+	/**
+	 * q[p][r] = Q between the variables decided at depths p and r, and
+	 * diag[p] = the diagonal coefficient of the variable at depth p
+	 */
+	private final double[][] q;
+	private final double[] diag;
+
+	/**
+	 * suffixPositive[p] and suffixNegative[p] = sums of the positive and of
+	 * the negative q[p][r] over r &gt; p
+	 */
+	private final double[] suffixPositive, suffixNegative;
+
+	/**
+	 * cover[p] = elements covered by the variable at depth p, and
+	 * suffixCover[p] = union of cover[r] for r &gt;= p
+	 */
+	private final long[][] cover, suffixCover;
+
+	private final double deadlineSeconds;
+	private final int threads;
+
+	/**
+	 * the value of the incumbent, as the bits of a double, for pruning by
+	 * every thread
+	 */
+	private final AtomicLong incumbentBits = new AtomicLong(Double.doubleToLongBits(Double.NEGATIVE_INFINITY));
+	private long incumbentMask;
+	private boolean hasIncumbent;
+
+	private final AtomicLong nodes = new AtomicLong();
+	private volatile boolean timedOut;
+	private long deadline;
+
+	/**
+	 * Creates the solver for an instance.
+	 *
+	 * @param problem
+	 *            The instance, with at most {@link #MAX_SIZE} variables.
+	 * @param timeLimit
+	 *            The number of seconds after which the search stops.
+	 * @param threads
+	 *            The number of threads solving subtrees.
+	 */
+	public BB_MAX_SC_QBF(MAX_SC_QBF problem, double timeLimit, int threads) {
+		if (problem.size > MAX_SIZE)
+			throw new IllegalArgumentException("The branch-and-bound supports at most " + MAX_SIZE + " variables");
+		this.problem = problem;
+		this.n = problem.size;
+		this.words = (problem.elements + 63) / 64;
+		this.deadlineSeconds = timeLimit;
+		this.threads = Math.max(1, threads);
+
+		double[][] Q = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			Q[i][i] = problem.A[i][i];
+			for (int j = i + 1; j < n; j++)
+				Q[i][j] = Q[j][i] = problem.A[i][j] + problem.A[j][i];
+		}
+
+		// decide first the variables with the largest coefficients
+		Integer[] byWeight = new Integer[n];
+		double[] weight = new double[n];
+		for (int i = 0; i < n; i++) {
+			byWeight[i] = i;
+			for (int j = 0; j < n; j++)
+				weight[i] += Math.abs(Q[i][j]);
+		}
+		Arrays.sort(byWeight, (a, b) -> Double.compare(weight[b], weight[a]));
+		order = new int[n];
+		for (int p = 0; p < n; p++)
+			order[p] = byWeight[p];
+
+		q = new double[n][n];
+		diag = new double[n];
+		suffixPositive = new double[n];
+		suffixNegative = new double[n];
+		cover = new long[n][];
+		suffixCover = new long[n + 1][words];
+		for (int p = 0; p < n; p++) {
+			diag[p] = Q[order[p]][order[p]];
+			for (int r = 0; r < n; r++) {
+				if (r != p)
+					q[p][r] = Q[order[p]][order[r]];
+			}
+			for (int r = p + 1; r < n; r++) {
+				suffixPositive[p] += Math.max(0, q[p][r]);
+				suffixNegative[p] += Math.min(0, q[p][r]);
+			}
+			cover[p] = new long[words];
+			for (Integer k : problem.S[order[p]])
+				cover[p][k >>> 6] |= 1L << k;
+		}
+		for (int p = n - 1; p >= 0; p--) {
+			for (int w = 0; w < words; w++)
+				suffixCover[p][w] = suffixCover[p + 1][w] | cover[p][w];
+		}
+	}
+
+	/**
+	 * Gives a feasible solution to start from, whose value prunes the tree
+	 * from the start.
+	 *
+	 * @param sol
+	 *            The solution, with the indexes of the instance.
+	 */
+	public void setIncumbent(Solution<Integer> sol) {
+		int[] depth = new int[n];
+		for (int p = 0; p < n; p++)
+			depth[order[p]] = p;
+		long mask = 0;
+		for (Integer i : sol)
+			mask |= 1L << depth[i];
+		offer(mask, valueOf(mask));
+	}
+
+	/**
+	 * Searches the whole tree, or until the time limit.
+	 *
+	 * @return The best solution found, with the cost convention of the
+	 *         inverse evaluator (minus its value), or null if no feasible
+	 *         solution was found.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public Solution<Integer> solve() throws InterruptedException {
+		deadline = System.nanoTime() + (long) (deadlineSeconds * 1e9);
+		timedOut = false;
+
+		// the nodes at the split depth, each solved as a task
+		int depth = Math.min(SPLIT_DEPTH, n);
+		List<long[]> roots = new ArrayList<>();
+		for (long prefix = 0; prefix < 1L << depth; prefix++)
+			roots.add(new long[] { prefix });
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (long[] root : roots)
+				futures.add(executor.submit(() -> new Search().run(root[0], depth)));
+			for (Future<?> future : futures)
+				future.get();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The branch-and-bound failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return getIncumbent();
+	}
+
+	/**
+	 * @return the best solution found so far, with the indexes of the
+	 *         instance, or null.
+	 */
+	public synchronized Solution<Integer> getIncumbent() {
+		if (!hasIncumbent)
+			return null;
+		Solution<Integer> sol = new Solution<Integer>();
+		for (int p = 0; p < n; p++) {
+			if ((incumbentMask >>> p & 1) != 0)
+				sol.add(order[p]);
+		}
+		sol.cost = -Double.longBitsToDouble(incumbentBits.get());
+		return sol;
+	}
+
+	/**
+	 * @return whether the last {@link #solve()} explored the whole tree, so
+	 *         that the incumbent is optimal.
+	 */
+	public boolean isOptimal() {
+		return !timedOut;
+	}
+
+	/**
+	 * @return the number of nodes visited.
+	 */
+	public long getNodes() {
+		return nodes.get();
+	}
+
+	private double incumbent() {
+		return Double.longBitsToDouble(incumbentBits.get());
+	}
+
+	/**
+	 * Replaces the incumbent if the solution is feasible and better.
+	 */
+	private synchronized void offer(long mask, double value) {
+		if (value <= incumbent() && hasIncumbent)
+			return;
+		long[] covered = new long[words];
+		for (int p = 0; p < n; p++) {
+			if ((mask >>> p & 1) != 0) {
+				for (int w = 0; w < words; w++)
+					covered[w] |= cover[p][w];
+			}
+		}
+		if (!coversAll(covered))
+			return;
+		incumbentMask = mask;
+		hasIncumbent = true;
+		incumbentBits.set(Double.doubleToLongBits(value));
+	}
+
+	private double valueOf(long mask) {
+		double value = problem.offset;
+		for (int p = 0; p < n; p++) {
+			if ((mask >>> p & 1) == 0)
+				continue;
+			value += diag[p];
+			for (int r = p + 1; r < n; r++) {
+				if ((mask >>> r & 1) != 0)
+					value += q[p][r];
+			}
+		}
+		return value;
+	}
+
+	private boolean coversAll(long[] covered) {
+		for (int w = 0; w < words; w++) {
+			long all = w < words - 1 || problem.elements % 64 == 0 ? -1L : (1L << problem.elements % 64) - 1;
+			if ((covered[w] & all) != all)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * The depth-first search of a subtree, with its own working arrays.
+	 */
+	private class Search {
+
+		/**
+		 * gain[p] = diag[p] + sum of q[p][r] over the selected r
+		 */
+		private final double[] gain = Arrays.copyOf(diag, n);
+		private final long[][] covered = new long[n + 1][words];
+		private long mask;
+		private long visited;
+		private double value = problem.offset;
+
+		/**
+		 * Solves the subtree whose first variables are decided by a prefix.
+		 */
+		void run(long prefix, int depth) {
+			for (int p = 0; p < depth; p++) {
+				covered[p + 1] = covered[p].clone();
+				if ((prefix >>> p & 1) != 0)
+					select(p);
+			}
+			branch(depth);
+			nodes.addAndGet(visited);
+		}
+
+		private void select(int p) {
+			mask |= 1L << p;
+			value += gain[p];
+			for (int r = 0; r < n; r++)
+				gain[r] += q[p][r];
+			for (int w = 0; w < words; w++)
+				covered[p + 1][w] |= cover[p][w];
+		}
+
+		private void deselect(int p) {
+			mask &= ~(1L << p);
+			for (int r = 0; r < n; r++)
+				gain[r] -= q[p][r];
+			value -= gain[p];
+		}
+
+		private void branch(int p) {
+			if (timedOut)
+				return;
+			if ((++visited & 0xFFF) == 0 && System.nanoTime() - deadline >= 0) {
+				timedOut = true;
+				return;
+			}
+
+			// some uncovered element can no longer be covered
+			long[] cov = covered[p];
+			for (int w = 0; w < words; w++) {
+				if ((~(cov[w] | suffixCover[p][w]) & mask(w)) != 0)
+					return;
+			}
+
+			if (p == n) {
+				// the value is recomputed, free of the rounding of the updates
+				if (value > incumbent())
+					offer(mask, valueOf(mask));
+				return;
+			}
+
+			double bound = value;
+			for (int r = p; r < n; r++)
+				bound += Math.max(0, gain[r] + suffixPositive[r]);
+			if (bound <= incumbent())
+				return;
+
+			// a set that never loses is selected, and one that never gains is
+			// not, unless it covers some uncovered element
+			boolean tryOne = true, tryZero = true;
+			if (gain[p] + suffixNegative[p] >= 0)
+				tryZero = false;
+			else if (gain[p] + suffixPositive[p] <= 0 && !coversUncovered(p, cov))
+				tryOne = false;
+
+			boolean oneFirst = gain[p] > 0;
+			for (int k = 0; k < 2; k++) {
+				boolean one = oneFirst == (k == 0);
+				if (one ? !tryOne : !tryZero)
+					continue;
+				System.arraycopy(cov, 0, covered[p + 1], 0, words);
+				if (one) {
+					select(p);
+					branch(p + 1);
+					deselect(p);
+				} else {
+					branch(p + 1);
+				}
+			}
+		}
+
+		private boolean coversUncovered(int p, long[] cov) {
+			for (int w = 0; w < words; w++) {
+				if ((cover[p][w] & ~cov[w]) != 0)
+					return true;
+			}
+			return false;
+		}
+
+		private long mask(int w) {
+			return w < words - 1 || problem.elements % 64 == 0 ? -1L : (1L << problem.elements % 64) - 1;
+		}
+	}
+
+}
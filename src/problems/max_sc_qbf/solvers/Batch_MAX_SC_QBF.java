@@ -0,0 +1,348 @@
+package problems.max_sc_qbf.solvers;
+
+import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.StopCriterion;
+import problems.max_sc_qbf.MAX_SC_QBF;
+import problems.max_sc_qbf.MAX_SC_QBF_Presolve;
+import problems.qbf.QBF_UpperBound;
+import solutions.Solution;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a whole experiment (instances x configurations x seeds) of
+ * {@link TS_MAX_SC_QBF} inside a single JVM. Each instance is read once and
+ * shared by its runs; the runs are solved on a fixed pool of platform threads
+ * sized to the available cores, while each run is orchestrated (submitted,
+ * awaited and reported) by its own virtual thread. Every finished run is
+ * appended as one line to a single CSV results file.
+ * <p>
+ * The manifest is a text file with one directive per line ({@code #} starts a
+ * comment). Directives may repeat and their values accumulate:
+ * <pre>
+ * instance instances/max_sc_qbf/max_sc_qbf-n_25-k_3.txt
+ * mode standard
+ * mode prob_ts 0.8
+ * mode intensify 4
+ * mode prob_plus_intensify 0.8 4
+ * tenure 10 20
+ * first true
+ * seeds 0 1 2
+ * time 1800
+ * threads 8
+ * output results/batch.csv
+ * </pre>
+ * The runs are the cross product of instances, modes, tenures, first
+ * improvement flags ({@code first}, default false) and seeds (default 0).
+ * Each instance of at most {@code exact <n>} sets (default
+ * {@link BB_MAX_SC_QBF#DEFAULT_SIZE}, 0 for none) also gets a run of
+ * {@link BB_MAX_SC_QBF}, reported in its own line with mode {@code exact}.
+ */
+public class Batch_MAX_SC_QBF {
+
+	/**
+	 * A single run of the experiment.
+	 */
+	static class Job {
+		final String instance;
+		final Configuration config;
+		final long seed;
+
+		Job(String instance, Configuration config, long seed) {
+			this.instance = instance;
+			this.config = config;
+			this.seed = seed;
+		}
+	}
+
+	public static final String CSV_HEADER = "instance,tenure,mode,first_improvement,portion_cl,theta,seed,time_limit_s,value,upper_bound,gap_pct,size,elapsed_s,solution";
+
+	private final List<String> instances = new ArrayList<>();
+	private final List<String[]> modes = new ArrayList<>();
+	private final List<Integer> tenures = new ArrayList<>();
+	private final List<Boolean> firstImprovements = new ArrayList<>();
+	private final List<Long> seeds = new ArrayList<>();
+	private int timeLimit = 1800;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private int exactSize = BB_MAX_SC_QBF.DEFAULT_SIZE;
+	private String output = "results/batch.csv";
+
+	/**
+	 * Reads the manifest of the experiment.
+	 *
+	 * @param filename
+	 *            Name of the manifest file.
+	 * @throws IOException
+	 *             Necessary for I/O operations.
+	 */
+	void readManifest(String filename) throws IOException {
+		try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int comment = line.indexOf('#');
+				if (comment >= 0)
+					line = line.substring(0, comment);
+				line = line.trim();
+				if (line.isEmpty())
+					continue;
+
+				String[] tokens = line.split("\\s+");
+				String[] values = Arrays.copyOfRange(tokens, 1, tokens.length);
+				switch (tokens[0]) {
+					case "instance":
+						instances.addAll(Arrays.asList(values));
+						break;
+					case "mode":
+						modes.add(values);
+						break;
+					case "tenure":
+						for (String v : values) tenures.add(Integer.parseInt(v));
+						break;
+					case "first":
+						for (String v : values) firstImprovements.add(Boolean.parseBoolean(v));
+						break;
+					case "seeds":
+						for (String v : values) seeds.add(Long.parseLong(v));
+						break;
+					case "time":
+						timeLimit = Integer.parseInt(values[0]);
+						break;
+					case "exact":
+						exactSize = Integer.parseInt(values[0]);
+						break;
+					case "threads":
+						threads = Integer.parseInt(values[0]);
+						break;
+					case "output":
+						output = values[0];
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown directive: " + tokens[0]);
+				}
+			}
+		}
+		if (instances.isEmpty() || modes.isEmpty() || tenures.isEmpty())
+			throw new IllegalArgumentException("The manifest needs at least one instance, mode and tenure.");
+		if (firstImprovements.isEmpty())
+			firstImprovements.add(false);
+		if (seeds.isEmpty())
+			seeds.add(0L);
+	}
+
+	/**
+	 * @return the runs of the experiment, as the cross product of the
+	 *         manifest values.
+	 */
+	List<Job> jobs() {
+		List<Job> jobs = new ArrayList<>();
+		for (String instance : instances) {
+			for (String[] mode : modes) {
+				for (int tenure : tenures) {
+					for (boolean first : firstImprovements) {
+						Configuration config = Configuration.of(tenure, mode[0], first, mode, 1);
+						if (1 + config.modeParams != mode.length)
+							throw new IllegalArgumentException("Unexpected parameters in mode: " + String.join(" ", mode));
+						for (long seed : seeds)
+							jobs.add(new Job(instance, config, seed));
+					}
+				}
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * Loads every instance once and computes its upper bound, then solves
+	 * every run and writes the results file. The bounds and the exact runs
+	 * are tasks of the solver pool like the other runs, awaited by the
+	 * orchestrators, so that no run holds another one back.
+	 */
+	void execute() throws IOException, InterruptedException {
+		AbstractTS.verbose = false;
+
+		Map<String, MAX_SC_QBF> problems = new LinkedHashMap<>();
+		for (String instance : instances) {
+			if (!problems.containsKey(instance))
+				problems.put(instance, new MAX_SC_QBF(instance));
+		}
+
+		List<Job> jobs = jobs();
+		// the first job of each instance solved exactly, whose configuration
+		// gives the starting solution
+		Map<String, Job> exactJobs = new LinkedHashMap<>();
+		if (exactSize > 0) {
+			for (Job job : jobs) {
+				if (problems.get(job.instance).size <= Math.min(exactSize, BB_MAX_SC_QBF.MAX_SIZE))
+					exactJobs.putIfAbsent(job.instance, job);
+			}
+		}
+		int total = jobs.size() + exactJobs.size();
+		AtomicInteger finished = new AtomicInteger();
+		ExecutorService solvers = Executors.newFixedThreadPool(threads);
+		try (PrintWriter out = new PrintWriter(output);
+				ExecutorService orchestrators = Executors.newVirtualThreadPerTaskExecutor()) {
+			out.println(CSV_HEADER);
+			out.flush();
+
+			// upperBounds.get(instance) = the upper bound of the instance,
+			// shared by its runs
+			Map<String, Future<Double>> upperBounds = new LinkedHashMap<>();
+			for (Map.Entry<String, MAX_SC_QBF> entry : problems.entrySet()) {
+				MAX_SC_QBF problem = entry.getValue();
+				upperBounds.put(entry.getKey(), solvers.submit(() -> new MAX_SC_QBF_Presolve(problem).upperBound()));
+			}
+
+			for (Job job : exactJobs.values()) {
+				MAX_SC_QBF problem = problems.get(job.instance);
+				orchestrate(orchestrators, job.instance + " [exact]", out, finished, total, () -> {
+					double upperBound = upperBounds.get(job.instance).get();
+					return solvers.submit(() -> solveExact(job, problem, upperBound)).get();
+				});
+			}
+			for (Job job : jobs) {
+				MAX_SC_QBF problem = problems.get(job.instance);
+				orchestrate(orchestrators, job.instance + " [" + job.config + "] seed=" + job.seed, out, finished, total, () -> {
+					double upperBound = upperBounds.get(job.instance).get();
+					return solvers.submit(() -> solve(job, problem, upperBound)).get();
+				});
+			}
+		} finally {
+			solvers.shutdown();
+		}
+	}
+
+	/**
+	 * Runs a job on a virtual thread, which waits for its line and appends it
+	 * to the results file.
+	 *
+	 * @param description
+	 *            The description of the run, for the error messages.
+	 * @param run
+	 *            Submits the run and waits for its line.
+	 */
+	private void orchestrate(ExecutorService orchestrators, String description, PrintWriter out, AtomicInteger finished, int total, Callable<String> run) {
+		orchestrators.submit(() -> {
+			String line;
+			try {
+				line = run.call();
+			} catch (ExecutionException e) {
+				System.err.println("Run failed: " + description);
+				e.getCause().printStackTrace();
+				return null;
+			}
+			synchronized (out) {
+				out.println(line);
+				out.flush();
+			}
+			System.out.printf("[%d/%d] %s%n", finished.incrementAndGet(), total, line);
+			return null;
+		});
+	}
+
+	/**
+	 * Solves a single run.
+	 *
+	 * @param upperBound
+	 *            The upper bound of the instance, which stops the search.
+	 * @return the line of the run in the results file.
+	 */
+	String solve(Job job, MAX_SC_QBF problem, double upperBound) {
+		long t0 = System.nanoTime();
+		TS_MAX_SC_QBF ts = job.config.build(problem, timeLimit);
+		ts.setSeed(job.seed);
+		ts.addStopCriterion(StopCriterion.upperBound(upperBound));
+		Solution<Integer> bestSol = ts.solve();
+		double elapsed = (System.nanoTime() - t0) / 1e9;
+
+		Configuration c = job.config;
+		return line(String.format(Locale.US, "%s,%d,%s,%b,%s,%d,%d", job.instance, c.tenure, c.mode, c.firstImprovement, c.portionCL, c.theta, job.seed),
+				bestSol, upperBound, elapsed);
+	}
+
+	/**
+	 * Solves an instance by the branch-and-bound, from the constructive
+	 * solution of the configuration of a job. A proven optimum is reported as
+	 * its own bound.
+	 *
+	 * @param upperBound
+	 *            The upper bound of the instance.
+	 * @return the line of the run in the results file, with mode exact.
+	 */
+	String solveExact(Job job, MAX_SC_QBF problem, double upperBound) throws InterruptedException {
+		long t0 = System.nanoTime();
+		BB_MAX_SC_QBF bb = new BB_MAX_SC_QBF(problem, timeLimit, 1);
+		bb.setIncumbent(job.config.build(problem, timeLimit).constructiveHeuristic());
+		Solution<Integer> bestSol = bb.solve();
+		double elapsed = (System.nanoTime() - t0) / 1e9;
+		if (bb.isOptimal())
+			upperBound = -bestSol.cost;
+
+		return line(job.instance + ",,exact,,,,", bestSol, upperBound, elapsed);
+	}
+
+	/**
+	 * @return the line of a run in the results file, from the columns of its
+	 *         instance and configuration.
+	 */
+	private String line(String run, Solution<Integer> bestSol, double upperBound, double elapsed) {
+		StringBuilder elements = new StringBuilder();
+		for (Integer e : bestSol) {
+			if (elements.length() > 0)
+				elements.append(' ');
+			elements.append(e);
+		}
+		return String.format(Locale.US, "%s,%d,%s,%.2f,%.3f,%d,%.3f,%s",
+				run, timeLimit, -bestSol.cost, upperBound, QBF_UpperBound.gap(upperBound, -bestSol.cost), bestSol.size(), elapsed, elements);
+	}
+
+	/**
+	 * Runs the experiment described by a manifest.
+	 */
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			printUsage();
+			return;
+		}
+
+		try {
+			Batch_MAX_SC_QBF batch = new Batch_MAX_SC_QBF();
+			batch.readManifest(args[0]);
+			batch.execute();
+		} catch (Exception e) {
+			e.printStackTrace();
+			printUsage();
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Uso:");
+		System.out.println("  java -cp bin problems.max_sc_qbf.solvers.Batch_MAX_SC_QBF <manifest>");
+		System.out.println("Diretivas do manifesto (uma por linha, repetíveis):");
+		System.out.println("  instance <file>...");
+		System.out.println("  mode standard | prob_ts <portionCL> | intensify <theta> | prob_plus_intensify <portionCL> <theta>");
+		System.out.println("  tenure <t>...");
+		System.out.println("  first <true/false>...        (padrão: false)");
+		System.out.println("  seeds <s>...                 (padrão: 0)");
+		System.out.println("  time <timeLimitSec>          (padrão: 1800)");
+		System.out.println("  exact <n>                    (padrão: " + BB_MAX_SC_QBF.DEFAULT_SIZE + "; também resolve por branch-and-bound as instâncias de até <n> conjuntos, no máximo " + BB_MAX_SC_QBF.MAX_SIZE + ", em uma linha própria; 0 desativa)");
+		System.out.println("  threads <n>                  (padrão: núcleos disponíveis)");
+		System.out.println("  output <file>                (padrão: results/batch.csv)");
+		System.out.println();
+	}
+
+}
@@ -0,0 +1,301 @@
+package problems.max_sc_qbf.solvers;
+
+import metaheuristics.tabusearch.ConvergenceTrace;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Time-to-target and anytime-profile benchmark for {@link TS_MAX_SC_QBF}.
+ * Every configuration is run on every instance with several seeds, and the
+ * convergence trace of each run is kept. From the traces it derives, for each
+ * target value, the distribution of the time needed to reach it (the
+ * empirical TTT plot of Aiex, Resende and Ribeiro) and, for each
+ * configuration, the best objective value found as a function of time.
+ * Runs are executed one at a time, so that they do not disturb each other's
+ * timings.
+ */
+public class Benchmark_MAX_SC_QBF {
+
+	/**
+	 * The convergence of a single seeded run, in objective (maximization)
+	 * values and seconds.
+	 */
+	static class Run {
+		final String instance;
+		final int config;
+		final long seed;
+		final double[] times;
+		final double[] values;
+
+		Run(String instance, int config, long seed, List<ConvergenceTrace.Entry> entries) {
+			this.instance = instance;
+			this.config = config;
+			this.seed = seed;
+			this.times = new double[entries.size()];
+			this.values = new double[entries.size()];
+			for (int i = 0; i < entries.size(); i++) {
+				times[i] = entries.get(i).elapsedNanos / 1e9;
+				values[i] = -entries.get(i).cost;
+			}
+		}
+
+		double finalValue() {
+			return values.length == 0 ? Double.NEGATIVE_INFINITY : values[values.length - 1];
+		}
+
+		/**
+		 * @return the first time the run reached the target, or NaN if it
+		 *         never did.
+		 */
+		double timeTo(double target) {
+			for (int i = 0; i < values.length; i++) {
+				if (values[i] >= target)
+					return times[i];
+			}
+			return Double.NaN;
+		}
+
+		/**
+		 * @return the best value found up to the given time, or NaN if the
+		 *         run had no solution yet.
+		 */
+		double valueAt(double time) {
+			double value = Double.NaN;
+			for (int i = 0; i < times.length && times[i] <= time; i++)
+				value = values[i];
+			return value;
+		}
+	}
+
+	private final List<String> instances = new ArrayList<>();
+	private final List<Configuration> configs = new ArrayList<>();
+	private final List<Run> runs = new ArrayList<>();
+	private int timeLimit;
+	private int repetitions;
+	private long baseSeed = 0;
+	private double[] targets;
+	private boolean relativeTargets = true;
+	private int points = 50;
+
+	/**
+	 * Executes every seeded run of every configuration on every instance.
+	 */
+	void execute() throws IOException {
+		for (String instance : instances) {
+			for (int c = 0; c < configs.size(); c++) {
+				for (int r = 0; r < repetitions; r++) {
+					long seed = baseSeed + r;
+					TS_MAX_SC_QBF ts = configs.get(c).build(instance, timeLimit);
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					ts.setSeed(seed);
+					ts.setTrace(ConvergenceTrace.toStream(bytes, ConvergenceTrace.Format.BINARY, true));
+					ts.solve();
+
+					List<ConvergenceTrace.Entry> entries = ConvergenceTrace.readBinary(new ByteArrayInputStream(bytes.toByteArray()));
+					if (!entries.isEmpty() && entries.get(entries.size() - 1).isDropMarker()) {
+						// the run is kept, but its times to target may be late
+						ConvergenceTrace.Entry marker = entries.remove(entries.size() - 1);
+						System.err.printf("%s [%s] seed=%d: trace dropped %d records%n", new File(instance).getName(), configs.get(c), seed, marker.iteration);
+					}
+					Run run = new Run(instance, c, seed, entries);
+					runs.add(run);
+					System.out.printf(Locale.US, "%s [%s] seed=%d value=%.2f%n", new File(instance).getName(), configs.get(c), seed, run.finalValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the targets of an instance, resolving relative targets against
+	 *         the best value found on it by any run.
+	 */
+	double[] targetsOf(String instance) {
+		if (!relativeTargets)
+			return targets;
+		double best = Double.NEGATIVE_INFINITY;
+		for (Run run : runs) {
+			if (run.instance.equals(instance))
+				best = Math.max(best, run.finalValue());
+		}
+		double[] resolved = new double[targets.length];
+		for (int i = 0; i < targets.length; i++)
+			resolved[i] = best - (1 - targets[i]) * Math.abs(best);
+		return resolved;
+	}
+
+	/**
+	 * @return the runs of a configuration on an instance.
+	 */
+	List<Run> runsOf(String instance, int config) {
+		List<Run> selected = new ArrayList<>();
+		for (Run run : runs) {
+			if (run.instance.equals(instance) && run.config == config)
+				selected.add(run);
+		}
+		return selected;
+	}
+
+	/**
+	 * Writes runs.csv, ttt.csv and anytime.csv into the output directory, and
+	 * a summary of the time-to-target distributions on the standard output.
+	 */
+	void report(File outputDir) throws IOException {
+		outputDir.mkdirs();
+
+		try (PrintWriter out = new PrintWriter(new File(outputDir, "runs.csv"))) {
+			out.println("instance,config,seed,final_value,time_to_final_s");
+			for (Run run : runs) {
+				double time = run.times.length == 0 ? Double.NaN : run.times[run.times.length - 1];
+				out.printf(Locale.US, "%s,%s,%d,%s,%s%n", run.instance, configs.get(run.config), run.seed, run.finalValue(), time);
+			}
+		}
+
+		System.out.println();
+		System.out.println("instance,config,target,reached,runs,median_ttt_s,mean_ttt_s");
+		try (PrintWriter out = new PrintWriter(new File(outputDir, "ttt.csv"))) {
+			out.println("instance,config,target,seed,time_s,probability");
+			for (String instance : instances) {
+				for (double target : targetsOf(instance)) {
+					for (int c = 0; c < configs.size(); c++) {
+						List<Run> selected = runsOf(instance, c);
+						List<Run> reachedRuns = new ArrayList<>();
+						for (Run run : selected) {
+							if (!Double.isNaN(run.timeTo(target)))
+								reachedRuns.add(run);
+						}
+						reachedRuns.sort(Comparator.comparingDouble(run -> run.timeTo(target)));
+						int reached = reachedRuns.size();
+						double[] times = new double[reached];
+						for (int i = 0; i < reached; i++) {
+							Run run = reachedRuns.get(i);
+							times[i] = run.timeTo(target);
+							double probability = (i + 0.5) / selected.size();
+							out.printf(Locale.US, "%s,%s,%s,%d,%s,%s%n", instance, configs.get(c), target, run.seed, times[i], probability);
+						}
+						for (Run run : selected) {
+							if (!reachedRuns.contains(run))
+								out.printf(Locale.US, "%s,%s,%s,%d,,%n", instance, configs.get(c), target, run.seed);
+						}
+						double mean = 0;
+						for (int i = 0; i < reached; i++)
+							mean += times[i] / reached;
+						double median = reached == 0 ? Double.NaN : times[(reached - 1) / 2];
+						System.out.printf(Locale.US, "%s,%s,%s,%d,%d,%s,%s%n", new File(instance).getName(), configs.get(c), target, reached, selected.size(),
+								reached == 0 ? "" : median, reached == 0 ? "" : mean);
+					}
+				}
+			}
+		}
+
+		try (PrintWriter out = new PrintWriter(new File(outputDir, "anytime.csv"))) {
+			out.println("instance,config,time_s,mean_value,min_value,max_value,runs_with_solution");
+			double first = 1e-3;
+			for (String instance : instances) {
+				for (int c = 0; c < configs.size(); c++) {
+					List<Run> selected = runsOf(instance, c);
+					for (int p = 0; p < points; p++) {
+						double time = first * Math.pow(timeLimit / first, p / (double) (points - 1));
+						double sum = 0, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+						int count = 0;
+						for (Run run : selected) {
+							double value = run.valueAt(time);
+							if (Double.isNaN(value))
+								continue;
+							sum += value;
+							min = Math.min(min, value);
+							max = Math.max(max, value);
+							count++;
+						}
+						if (count > 0)
+							out.printf(Locale.US, "%s,%s,%s,%s,%s,%s,%d%n", instance, configs.get(c), time, sum / count, min, max, count);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmark from the command line.
+	 */
+	public static void main(String[] args) {
+		if (args.length < 4) {
+			printUsage();
+			return;
+		}
+
+		try {
+			Benchmark_MAX_SC_QBF benchmark = new Benchmark_MAX_SC_QBF();
+			int idx = 0;
+			File outputDir = new File(args[idx++]);
+			benchmark.timeLimit = Integer.parseInt(args[idx++]);
+			benchmark.repetitions = Integer.parseInt(args[idx++]);
+			benchmark.targets = new double[] { 0.95, 0.99, 1.0 };
+
+			while (idx < args.length) {
+				String arg = args[idx++];
+				switch (arg) {
+					case "--config":
+						benchmark.configs.add(Configuration.parse(args[idx++]));
+						break;
+					case "--targets":
+						benchmark.targets = parseList(args[idx++]);
+						benchmark.relativeTargets = false;
+						break;
+					case "--relative-targets":
+						benchmark.targets = parseList(args[idx++]);
+						benchmark.relativeTargets = true;
+						break;
+					case "--seed":
+						benchmark.baseSeed = Long.parseLong(args[idx++]);
+						break;
+					case "--points":
+						benchmark.points = Integer.parseInt(args[idx++]);
+						break;
+					default:
+						if (arg.startsWith("--"))
+							throw new IllegalArgumentException("Unknown option: " + arg);
+						benchmark.instances.add(arg);
+				}
+			}
+			if (benchmark.configs.isEmpty()) {
+				for (String spec : Configuration.RESULTS)
+					benchmark.configs.add(Configuration.parse(spec));
+			}
+
+			benchmark.execute();
+			benchmark.report(outputDir);
+		} catch (Exception e) {
+			e.printStackTrace();
+			printUsage();
+		}
+	}
+
+	private static double[] parseList(String list) {
+		String[] tokens = list.split(",");
+		double[] values = new double[tokens.length];
+		for (int i = 0; i < tokens.length; i++)
+			values[i] = Double.parseDouble(tokens[i]);
+		return values;
+	}
+
+	private static void printUsage() {
+		System.out.println("Uso:");
+		System.out.println("  java -cp bin problems.max_sc_qbf.solvers.Benchmark_MAX_SC_QBF <outputDir> <timeLimitSec> <runs> <instance>... [options]");
+		System.out.println("Opções:");
+		System.out.println("  --config \"<tenure> <mode> <firstImprovement> [mode params]\"   (repetível; padrão: configurações 01 a 07)");
+		System.out.println("  --targets <v1,v2,...>            valores alvo absolutos");
+		System.out.println("  --relative-targets <f1,f2,...>   alvos como fração do melhor valor da instância (padrão: 0.95,0.99,1.0)");
+		System.out.println("  --seed <base>                    semente da primeira execução (padrão: 0)");
+		System.out.println("  --points <n>                     pontos do perfil anytime (padrão: 50)");
+		System.out.println();
+	}
+
+}
@@ -0,0 +1,159 @@
+package problems.max_sc_qbf.solvers;
+
+import problems.max_sc_qbf.MAX_SC_QBF;
+import problems.max_sc_qbf.MAX_SC_QBF_Inverse;
+
+import java.io.IOException;
+
+/**
+ * A configuration of the {@link TS_MAX_SC_QBF} heuristic, given in the same
+ * syntax as the command line of {@link TS_MAX_SC_QBF#main(String[])}:
+ * {@code <tenure> <mode> <firstImprovement> [mode params]}, where the modes
+ * are {@code standard}, {@code prob_ts <portionCL>}, {@code intensify <theta>}
+ * and {@code prob_plus_intensify <portionCL> <theta>}.
+ */
+public class Configuration {
+
+	/**
+	 * The configurations used in results/01 to results/07, in this order.
+	 */
+	public static final String[] RESULTS = {
+			"10 standard false",
+			"10 standard true",
+			"20 standard true",
+			"10 prob_ts true 0.8",
+			"10 intensify true 4",
+			"10 prob_plus_intensify true 0.8 4",
+			"40 standard true"
+	};
+
+	public final int tenure;
+	public final String mode;
+	public final boolean firstImprovement;
+	public final double portionCL;
+	public final int theta;
+	public final boolean withIntensification;
+
+	/**
+	 * Number of command line arguments consumed by the mode parameters.
+	 */
+	final int modeParams;
+
+	private Configuration(int tenure, String mode, boolean firstImprovement, double portionCL, int theta, boolean withIntensification, int modeParams) {
+		this.tenure = tenure;
+		this.mode = mode;
+		this.firstImprovement = firstImprovement;
+		this.portionCL = portionCL;
+		this.theta = theta;
+		this.withIntensification = withIntensification;
+		this.modeParams = modeParams;
+	}
+
+	/**
+	 * Builds a configuration from a mode and the arguments following it.
+	 *
+	 * @param tenure
+	 *            The Tabu tenure parameter.
+	 * @param mode
+	 *            One of standard, prob_ts, intensify or prob_plus_intensify.
+	 * @param firstImprovement
+	 *            Decides if the local search will be first-improvement.
+	 * @param args
+	 *            The arguments holding the mode parameters.
+	 * @param idx
+	 *            The index of the first mode parameter in args.
+	 * @return The configuration.
+	 */
+	public static Configuration of(int tenure, String mode, boolean firstImprovement, String[] args, int idx) {
+		boolean withIntensification = false;
+		double portionCL = 1.0;
+		int theta = 0;
+		int start = idx;
+
+		switch (mode.toLowerCase()) {
+			case "standard":
+				break;
+			case "prob_ts":
+				if (args.length <= idx)
+					throw new IllegalArgumentException("Mode prob_ts requires <portionCL>.");
+				portionCL = Double.parseDouble(args[idx++]);
+				break;
+			case "intensify":
+				if (args.length <= idx)
+					throw new IllegalArgumentException("Mode intensify requires <theta>.");
+				withIntensification = true;
+				theta = Integer.parseInt(args[idx++]);
+				break;
+			case "prob_plus_intensify":
+				if (args.length <= idx + 1)
+					throw new IllegalArgumentException("Mode prob_plus_intensify requires <portionCL> <theta>.");
+				portionCL = Double.parseDouble(args[idx++]);
+				theta = Integer.parseInt(args[idx++]);
+				withIntensification = true;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown mode: " + mode);
+		}
+
+		return new Configuration(tenure, mode.toLowerCase(), firstImprovement, portionCL, theta, withIntensification, idx - start);
+	}
+
+	/**
+	 * Parses a configuration written as
+	 * {@code <tenure> <mode> <firstImprovement> [mode params]}.
+	 *
+	 * @param spec
+	 *            The configuration, with its fields separated by blanks.
+	 * @return The configuration.
+	 */
+	public static Configuration parse(String spec) {
+		String[] tokens = spec.trim().split("\\s+");
+		Configuration config = of(Integer.parseInt(tokens[0]), tokens[1], Boolean.parseBoolean(tokens[2]), tokens, 3);
+		if (3 + config.modeParams != tokens.length)
+			throw new IllegalArgumentException("Unexpected parameters in configuration: " + spec);
+		return config;
+	}
+
+	/**
+	 * Instantiates the heuristic for an instance.
+	 *
+	 * @param filename
+	 *            Name of the instance file.
+	 * @param timeLimit
+	 *            The number of seconds which the TS will be executed.
+	 * @return The heuristic, ready to be solved.
+	 * @throws IOException
+	 *             necessary for I/O operations.
+	 */
+	public TS_MAX_SC_QBF build(String filename, int timeLimit) throws IOException {
+		return new TS_MAX_SC_QBF(tenure, timeLimit, theta, filename, portionCL, firstImprovement, withIntensification);
+	}
+
+	/**
+	 * Instantiates the heuristic for an instance already loaded.
+	 *
+	 * @param problem
+	 *            The instance, which is shared and not modified.
+	 * @param timeLimit
+	 *            The number of seconds which the TS will be executed.
+	 * @return The heuristic, ready to be solved.
+	 */
+	public TS_MAX_SC_QBF build(MAX_SC_QBF problem, int timeLimit) {
+		return new TS_MAX_SC_QBF(tenure, timeLimit, theta, new MAX_SC_QBF_Inverse(problem), portionCL, firstImprovement, withIntensification);
+	}
+
+	@Override
+	public String toString() {
+		switch (mode) {
+			case "prob_ts":
+				return tenure + " " + mode + " " + firstImprovement + " " + portionCL;
+			case "intensify":
+				return tenure + " " + mode + " " + firstImprovement + " " + theta;
+			case "prob_plus_intensify":
+				return tenure + " " + mode + " " + firstImprovement + " " + portionCL + " " + theta;
+			default:
+				return tenure + " " + mode + " " + firstImprovement;
+		}
+	}
+
+}
@@ -0,0 +1,180 @@
+package problems.max_sc_qbf.solvers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import problems.max_sc_qbf.MAX_SC_QBF;
+import problems.max_sc_qbf.MAX_SC_QBF_DeltaCache;
+import problems.max_sc_qbf.MAX_SC_QBF_Presolve;
+import solutions.Solution;
+
+/**
+ * Fix-and-optimize large neighborhood search for MAX_SC_QBF, which improves
+ * the solution of a Tabu Search. Each round draws one subset of correlated
+ * variables per thread, fixes the other variables at their values in the
+ * incumbent and solves each subproblem exactly with {@link BB_MAX_SC_QBF}.
+ * The subproblems of a round are independent and solved in parallel, and the
+ * best improving one becomes the incumbent. A subset grows from a random
+ * variable by adding random partners of its variables, i.e. the variables
+ * with the largest interactions or shared coverage with them, see
+ * {@link MAX_SC_QBF_DeltaCache#partners(int)}.
+ */
+public class LNS_MAX_SC_QBF {
+
+	/**
+	 * Number of partners of each variable by interaction and by coverage.
+	 */
+	private static final int PARTNERS = 5;
+
+	/**
+	 * Time limit, in seconds, of the branch-and-bound of a subproblem.
+	 */
+	private static final double SUBPROBLEM_TIME = 1.0;
+
+	/**
+	 * The search stops after this many subproblems per variable, in
+	 * expectation, without improvement.
+	 */
+	private static final int STALE_VISITS = 5;
+
+	private final MAX_SC_QBF problem;
+	private final int subproblemSize, threads;
+	private final int[][] partners;
+	private final Random rng;
+
+	private long subproblems, improvements;
+
+	/**
+	 * Creates the search for an instance.
+	 *
+	 * @param problem
+	 *            The instance.
+	 * @param subproblemSize
+	 *            The number of free variables of each subproblem, at most
+	 *            {@link BB_MAX_SC_QBF#MAX_SIZE}.
+	 * @param threads
+	 *            The number of subproblems solved at a time.
+	 * @param seed
+	 *            The seed of the random choice of the subsets.
+	 */
+	public LNS_MAX_SC_QBF(MAX_SC_QBF problem, int subproblemSize, int threads, long seed) {
+		if (subproblemSize < 1 || subproblemSize > BB_MAX_SC_QBF.MAX_SIZE)
+			throw new IllegalArgumentException("The subproblems have between 1 and " + BB_MAX_SC_QBF.MAX_SIZE + " variables");
+		this.problem = problem;
+		this.subproblemSize = Math.min(subproblemSize, problem.size);
+		this.threads = Math.max(1, threads);
+		this.partners = new MAX_SC_QBF_DeltaCache(problem).partners(PARTNERS);
+		this.rng = new Random(seed);
+	}
+
+	/**
+	 * Improves a solution until the time limit, or until no subproblem
+	 * improves it for {@link #STALE_VISITS} visits per variable.
+	 *
+	 * @param sol
+	 *            A feasible solution, with the cost convention of the inverse
+	 *            evaluator, which is not modified.
+	 * @param timeLimit
+	 *            The number of seconds of the search.
+	 * @return The best solution found.
+	 * @throws InterruptedException
+	 *             if the calling thread is interrupted while waiting.
+	 */
+	public Solution<Integer> improve(Solution<Integer> sol, double timeLimit) throws InterruptedException {
+		long deadline = System.nanoTime() + (long) (timeLimit * 1e9);
+		long staleLimit = (long) Math.ceil((double) STALE_VISITS * problem.size / subproblemSize);
+		long stale = 0;
+		Solution<Integer> best = new Solution<Integer>(sol);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			while (stale < staleLimit && System.nanoTime() - deadline < 0) {
+				Solution<Integer> incumbent = best;
+				List<Future<Solution<Integer>>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					int[] free = subset();
+					futures.add(executor.submit(() -> solveSubproblem(incumbent, free, deadline)));
+				}
+				Solution<Integer> roundBest = null;
+				for (Future<Solution<Integer>> future : futures) {
+					Solution<Integer> candidate = future.get();
+					if (candidate != null && (roundBest == null || candidate.cost < roundBest.cost))
+						roundBest = candidate;
+				}
+				subproblems += futures.size();
+				if (roundBest != null && roundBest.cost < best.cost - 1e-9) {
+					best = roundBest;
+					improvements++;
+					stale = 0;
+				} else {
+					stale += futures.size();
+				}
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A subproblem of the LNS failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return best;
+	}
+
+	/**
+	 * @return a subset of correlated variables, grown from a random variable
+	 *         by adding random partners of the variables already chosen.
+	 */
+	private int[] subset() {
+		BitSet chosen = new BitSet(problem.size);
+		List<Integer> frontier = new ArrayList<>();
+		int[] free = new int[subproblemSize];
+		for (int s = 0; s < subproblemSize; s++) {
+			int i;
+			do {
+				// a random variable when no partner is left
+				i = frontier.isEmpty() ? rng.nextInt(problem.size) : frontier.remove(rng.nextInt(frontier.size()));
+			} while (chosen.get(i));
+			chosen.set(i);
+			free[s] = i;
+			for (int j : partners[i]) {
+				if (!chosen.get(j))
+					frontier.add(j);
+			}
+		}
+		return free;
+	}
+
+	/**
+	 * Solves the subproblem over a subset of the variables.
+	 *
+	 * @return the solution of the instance with the optimal values of the
+	 *         subset, or null if the subproblem could not be solved.
+	 */
+	private Solution<Integer> solveSubproblem(Solution<Integer> incumbent, int[] free, long deadline) throws InterruptedException {
+		MAX_SC_QBF_Presolve subproblem = MAX_SC_QBF_Presolve.fixOutside(problem, incumbent, free);
+		double remaining = Math.min(SUBPROBLEM_TIME, (deadline - System.nanoTime()) / 1e9);
+		BB_MAX_SC_QBF bb = new BB_MAX_SC_QBF(subproblem.getReduced(), Math.max(0, remaining), 1);
+		bb.setIncumbent(subproblem.restrict(incumbent));
+		Solution<Integer> sol = bb.solve();
+		return sol != null ? subproblem.expand(sol) : null;
+	}
+
+	/**
+	 * @return the number of subproblems solved by the last searches.
+	 */
+	public long getSubproblems() {
+		return subproblems;
+	}
+
+	/**
+	 * @return the number of improvements of the incumbent.
+	 */
+	public long getImprovements() {
+		return improvements;
+	}
+
+}
@@ -1,11 +1,28 @@
 package problems.max_sc_qbf.solvers;
 
 import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.AnytimeSearch;
+import metaheuristics.tabusearch.BoundOrder;
+import metaheuristics.tabusearch.CandidateSampler;
+import metaheuristics.tabusearch.ConvergenceTrace;
+import metaheuristics.tabusearch.SeedPool;
+import metaheuristics.tabusearch.StopCriterion;
+import problems.max_sc_qbf.MAX_SC_QBF;
+import problems.max_sc_qbf.MAX_SC_QBF_DeltaCache;
 import problems.max_sc_qbf.MAX_SC_QBF_Inverse;
+import problems.max_sc_qbf.MAX_SC_QBF_PairMoves;
+import problems.max_sc_qbf.MAX_SC_QBF_Presolve;
+import problems.qbf.QBF_UpperBound;
 import solutions.Solution;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
 
 
 /**
@@ -18,7 +35,102 @@ import java.util.*;
  */
 public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 	
-	private final Integer fake = new Integer(-1);
+	private final Integer fake = Integer.valueOf(-1);
+
+	/**
+	 * the incremental evaluation of moves around {@link #sol}
+	 */
+	protected final MAX_SC_QBF_DeltaCache cache;
+
+	/**
+	 * the elements out of the solution, which replace {@link #CL} during the
+	 * search, and the size of the portion drawn from them by the last move
+	 */
+	private final CandidateSampler candidates;
+	private int portionSize;
+
+	/**
+	 * the search of pair moves used by the intensification
+	 */
+	private final MAX_SC_QBF_PairMoves pairMoves;
+
+	/**
+	 * tabuCount[e] = number of occurrences of element e in {@link #TL}
+	 */
+	private int[] tabuCount;
+
+	/**
+	 * the move selected by the last scan, -1 standing for no element
+	 */
+	private int moveIn, moveOut;
+	private double minDeltaCost;
+
+	/**
+	 * the maximum number of moves evaluated by a first-improvement scan, 0
+	 * for no limit, and the number evaluated by the current scan
+	 */
+	private int scanLimit, scanned;
+
+	/**
+	 * the elements inserted and removed by the last move, -1 if none
+	 */
+	private int lastIn = -1, lastOut = -1;
+
+	/**
+	 * the elite candidate list: the best moves of the last full scan, sorted
+	 * by their cost at that scan
+	 */
+	private int eliteSize, eliteIterations, eliteCount, eliteAge;
+	private int[] eliteIn = new int[0], eliteOut = new int[0];
+	private double[] eliteCost = new double[0];
+
+	/**
+	 * the cost of the worst move kept at the last full scan
+	 */
+	private double eliteThreshold;
+
+	/**
+	 * partners[i] = the variables exchanged with i in a granular scan, or
+	 * null if every exchange is scanned
+	 */
+	private int[][] partners;
+
+	/**
+	 * the number of scans between two scans of the full neighborhood, and
+	 * the number of scans since the last one
+	 */
+	private int granularInterval, granularAge;
+
+	/**
+	 * whether the exchanges of a full scan are visited in order of their
+	 * bounds and cut off, see {@link #setBoundedExchanges(boolean)}
+	 */
+	private boolean boundedExchanges;
+	private BoundOrder boundIn, boundOut;
+
+	/**
+	 * the number of exchanges evaluated and skipped by their bounds
+	 */
+	private long exchangesEvaluated, exchangesSkipped;
+
+	/**
+	 * whether the search may leave the feasible region, see
+	 * {@link #setStrategicOscillation(double)}, the cost of each uncovered
+	 * element and the factor by which the controller changes it
+	 */
+	private boolean oscillating;
+	private double penaltyWeight, oscillationFactor;
+
+	/**
+	 * the number of iterations ended at an infeasible solution
+	 */
+	private long infeasibleIterations;
+
+	/**
+	 * the deadline of the construction of an anytime search, by
+	 * {@link System#nanoTime()}, or 0 for the GRASP construction
+	 */
+	private long coverDeadline;
 
 	/**
 	 * Constructor for the TS_QBF class. An inverse QBF objective function is
@@ -44,7 +156,172 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 	 *             necessary for I/O operations.
 	 */
 	public TS_MAX_SC_QBF(Integer tenure, Integer timeLimit, Integer consecutiveBetterSolutionsToIntensification, String filename, Double portionCL, boolean isFirstImprovement, boolean isWithIntensification) throws IOException {
-		super(new MAX_SC_QBF_Inverse(filename), tenure, timeLimit, consecutiveBetterSolutionsToIntensification, portionCL, isFirstImprovement, isWithIntensification);
+		this(tenure, timeLimit, consecutiveBetterSolutionsToIntensification, new MAX_SC_QBF_Inverse(filename), portionCL, isFirstImprovement, isWithIntensification);
+	}
+
+	/**
+	 * Constructor for the TS_QBF class over an instance already loaded. The
+	 * objective function must not be shared with another running solver, see
+	 * {@link MAX_SC_QBF_Inverse#MAX_SC_QBF_Inverse(problems.max_sc_qbf.MAX_SC_QBF)}.
+	 *
+	 * @param tenure
+	 *            The Tabu tenure parameter.
+	 * @param timeLimit
+	 *            The number of seconds which the TS will be executed.
+	 * @param consecutiveBetterSolutionsToIntensification
+	 *            The number of consecutive better solutions to trigger intensification.
+	 * @param objFunction
+	 *            The inverse MAX_SC_QBF objective function.
+	 * @param portionCL
+	 *            The portion of Candidate List that will be considered in local
+	 *            search.
+	 * @param isFirstImprovement
+	 *            Decides if the local search will be first-improvement
+	 * @param isWithIntensification
+	 *            Decides if it will use intensification strategy
+	 */
+	public TS_MAX_SC_QBF(Integer tenure, Integer timeLimit, Integer consecutiveBetterSolutionsToIntensification, MAX_SC_QBF_Inverse objFunction, Double portionCL, boolean isFirstImprovement, boolean isWithIntensification) {
+		super(objFunction, tenure, timeLimit, consecutiveBetterSolutionsToIntensification, portionCL, isFirstImprovement, isWithIntensification);
+		this.cache = new MAX_SC_QBF_DeltaCache(objFunction);
+		this.pairMoves = new MAX_SC_QBF_PairMoves(cache);
+		this.candidates = new CandidateSampler(objFunction.getDomainSize());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * For MAX_SC_QBF the solution is built incrementally with the delta
+	 * cache, so that each step costs O(n) plus the flip of the inserted set.
+	 * While some element is uncovered only the sets covering some uncovered
+	 * element are candidates; afterwards, the sets with positive gain. At each
+	 * step the RCL holds the candidates whose gain is within
+	 * {@link #alpha} * (max - min) of the largest one, and the construction
+	 * ends when every element is covered and no gain is positive.
+	 */
+	@Override
+	public Solution<Integer> constructiveHeuristic() {
+		if (coverDeadline != 0)
+			return greedyCover(coverDeadline);
+
+		CL = makeCL();
+		RCL = makeRCL();
+		sol = createEmptySol();
+		cache.reset(sol);
+		candidates.clear();
+		for (Integer elem : CL)
+			candidates.add(elem);
+
+		int[] rcl = new int[candidates.size()];
+		while (true) {
+			boolean covering = cache.uncovered() > 0;
+			double maxGain = Double.NEGATIVE_INFINITY, minGain = Double.POSITIVE_INFINITY;
+			for (int t = 0; t < candidates.size(); t++) {
+				int c = candidates.get(t);
+				if (covering ? cache.newlyCovered(c) == 0 : cache.gain(c) <= 0)
+					continue;
+				maxGain = Math.max(maxGain, cache.gain(c));
+				minGain = Math.min(minGain, cache.gain(c));
+			}
+			if (maxGain == Double.NEGATIVE_INFINITY)
+				break;
+
+			double threshold = maxGain - alpha * (maxGain - minGain);
+			int rclSize = 0;
+			for (int t = 0; t < candidates.size(); t++) {
+				int c = candidates.get(t);
+				if ((covering ? cache.newlyCovered(c) > 0 : cache.gain(c) > 0) && cache.gain(c) >= threshold)
+					rcl[rclSize++] = c;
+			}
+
+			insertElement(rcl[rng.nextInt(rclSize)]);
+		}
+
+		CL.clear();
+		for (int t = 0; t < candidates.size(); t++)
+			CL.add(candidates.get(t));
+
+		return sol;
+	}
+
+	/**
+	 * Builds a feasible solution as fast as possible: a greedy set cover,
+	 * which repeatedly inserts the set covering the most uncovered elements
+	 * (ties by the largest gain), followed by the insertion of the set with
+	 * the largest positive gain while the deadline is not reached. The cover
+	 * is always completed, in at most min(n, m) steps of O(n) each.
+	 *
+	 * @param deadline
+	 *            The deadline, by {@link System#nanoTime()}.
+	 * @return The solution.
+	 */
+	private Solution<Integer> greedyCover(long deadline) {
+
+		CL = makeCL();
+		RCL = makeRCL();
+		sol = createEmptySol();
+		cache.reset(sol);
+		candidates.clear();
+		for (Integer elem : CL)
+			candidates.add(elem);
+
+		while (cache.uncovered() > 0) {
+			int best = -1;
+			for (int t = 0; t < candidates.size(); t++) {
+				int c = candidates.get(t);
+				int newly = cache.newlyCovered(c);
+				if (newly == 0)
+					continue;
+				if (best < 0 || newly > cache.newlyCovered(best) || (newly == cache.newlyCovered(best) && cache.gain(c) > cache.gain(best)))
+					best = c;
+			}
+			if (best < 0)
+				break;
+			insertElement(best);
+		}
+
+		while (System.nanoTime() - deadline < 0) {
+			int best = -1;
+			for (int t = 0; t < candidates.size(); t++) {
+				int c = candidates.get(t);
+				if (cache.gain(c) > 0 && (best < 0 || cache.gain(c) > cache.gain(best)))
+					best = c;
+			}
+			if (best < 0)
+				break;
+			insertElement(best);
+		}
+
+		CL.clear();
+		for (int t = 0; t < candidates.size(); t++)
+			CL.add(candidates.get(t));
+
+		return sol;
+	}
+
+	/**
+	 * Low-latency anytime solve: a feasible cover is built by
+	 * {@link #greedyCover(long)} within the latency budget and returned at
+	 * once, while the Tabu Search improves it in the background.
+	 *
+	 * @param latencyMillis
+	 *            The latency budget of the construction, in milliseconds; the
+	 *            cover itself is completed even if it takes longer.
+	 * @param executor
+	 *            The executor running the search.
+	 * @param listener
+	 *            Called with each improvement, on the thread of the search, or
+	 *            null.
+	 * @return The handle of the search.
+	 */
+	public AnytimeSearch<Integer> solveAnytime(long latencyMillis, Executor executor, Consumer<Solution<Integer>> listener) {
+		coverDeadline = System.nanoTime() + Math.max(0, latencyMillis) * 1_000_000L;
+		if (coverDeadline == 0)
+			coverDeadline = 1;
+		try {
+			return solveAnytime(executor, listener);
+		} finally {
+			coverDeadline = 0;
+		}
 	}
 
 	/* (non-Javadoc)
@@ -55,7 +332,7 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 
 		ArrayList<Integer> _CL = new ArrayList<Integer>();
 		for (int i = 0; i < ObjFunction.getDomainSize(); i++) {
-			Integer cand = new Integer(i);
+			Integer cand = Integer.valueOf(i);
 			_CL.add(cand);
 		}
 
@@ -69,8 +346,11 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
     @Override
     public ArrayList<Integer> makeCLPortion() {
 
-        Collections.shuffle(CL);
-        return new ArrayList<>(CL.subList(0, (int) (portionCL * CL.size())));
+        portionSize = candidates.sample(portionCL, rng);
+        ArrayList<Integer> _CLPortion = new ArrayList<Integer>(portionSize);
+        for (int t = 0; t < portionSize; t++)
+            _CLPortion.add(candidates.get(t));
+        return _CLPortion;
     }
 
 	/* (non-Javadoc)
@@ -106,112 +386,94 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 	@Override
 	public void updateCL() {
 
-        Collections.shuffle(CL);
+        Collections.shuffle(CL, rng);
 
 	}
 
-    /* (non-Javadoc)
-     * @see metaheuristics.tabusearch.AbstractTS#intensification()
+    /**
+     * {@inheritDoc}
+     *
+     * The intensification for MAX_SC_QBF takes the best admissible move that
+     * inserts or removes a pair of elements, found by
+     * {@link MAX_SC_QBF_PairMoves} from the gains of the delta cache. Both
+     * elements enter the tabu list. When its budget runs out, the search of
+     * pairs stops and the best move found so far is taken.
      */
     @Override
     public Solution<Integer> intensification() {
 
-        Double minDeltaCost;
-        Integer firstBestCandIn = null, secondBestCandIn = null;
-        Integer firstBestCandOut = null, secondBestCandOut = null;
-
-        minDeltaCost = Double.POSITIVE_INFINITY;
-
-        // Evaluate insertions
-        for (Integer firstCandIn : CL) {
-            for (Integer secondCandIn : CL) {
-                if (Objects.equals(firstCandIn, secondCandIn)) continue;
+        MAX_SC_QBF_PairMoves.Admissibility admissible = (first, second, delta) ->
+                (!isTabu(first) && !isTabu(second)) || sol.cost - delta < bestSol.cost;
 
-                Double deltaCost = ObjFunction.evaluateInsertionCost(firstCandIn, secondCandIn, sol);
-                if ((!TL.contains(firstCandIn) && !TL.contains(secondCandIn)) || sol.cost + deltaCost < bestSol.cost) {
-                    Solution<Integer> currentSolution = new Solution<>(sol);
-                    currentSolution.add(firstCandIn);
-                    currentSolution.add(secondCandIn);
+        int[] cands = new int[candidates.size()];
+        for (int k = 0; k < cands.length; k++)
+            cands[k] = candidates.get(k);
+        int[] members = new int[sol.size()];
+        for (int k = 0; k < members.length; k++)
+            members[k] = sol.get(k);
 
-                    if (deltaCost < minDeltaCost && ObjFunction.isValid(currentSolution)) {
-                        minDeltaCost = deltaCost;
-
-                        firstBestCandIn = firstCandIn;
-                        secondBestCandIn = secondCandIn;
-                    }
-                }
-            }
-        }
-
-        for (Integer firstCandOut : sol) {
-            for (Integer secondCandOut : sol) {
-                if (firstCandOut.equals(secondCandOut)) continue;
-
-                Double deltaCost = ObjFunction.evaluateRemovalCost(firstCandOut, secondCandOut, sol);
-                if ((!TL.contains(firstCandOut) && !TL.contains(secondCandOut)) || sol.cost + deltaCost < bestSol.cost) {
-                    Solution<Integer> currentSolution = new Solution<>(sol);
-                    currentSolution.remove(firstCandOut);
-                    currentSolution.remove(secondCandOut);
-
-                    if (deltaCost < minDeltaCost && ObjFunction.isValid(currentSolution)) {
-                        minDeltaCost = deltaCost;
-
-                        firstBestCandOut = firstCandOut;
-                        secondBestCandOut = secondCandOut;
-
-                        firstBestCandIn = null;
-                        secondBestCandIn = null;
-                    }
-                }
-            }
-        }
+        MAX_SC_QBF_PairMoves.Move insertion = pairMoves.bestInsertion(cands, admissible, this::intensificationExpired);
+        MAX_SC_QBF_PairMoves.Move removal = pairMoves.bestRemoval(members, admissible, this::intensificationExpired);
+        if (removal != null && insertion != null && removal.delta <= insertion.delta)
+            removal = null;
 
         // Implement the best non-tabu move
-        TL.poll();
-        TL.poll();
-        if (firstBestCandOut != null && secondBestCandOut != null) {
-            sol.remove(firstBestCandOut);
-            sol.remove(secondBestCandOut);
-            CL.add(firstBestCandOut);
-            CL.add(secondBestCandOut);
-            TL.add(firstBestCandOut);
-            TL.add(secondBestCandOut);
+        if (removal != null) {
+            removeElement(removal.first);
+            removeElement(removal.second);
+            pushTabu(removal.first);
+            pushTabu(removal.second);
         } else {
-            TL.add(fake);
-            TL.add(fake);
+            pushTabu(fake);
+            pushTabu(fake);
         }
 
-        TL.poll();
-        TL.poll();
-        if (firstBestCandIn != null && secondBestCandIn != null) {
-            sol.add(firstBestCandIn);
-            sol.add(secondBestCandIn);
-            CL.remove(firstBestCandIn);
-            CL.remove(secondBestCandIn);
-            TL.add(firstBestCandIn);
-            TL.add(secondBestCandIn);
+        if (removal == null && insertion != null) {
+            insertElement(insertion.first);
+            insertElement(insertion.second);
+            pushTabu(insertion.first);
+            pushTabu(insertion.second);
         } else {
-            TL.add(fake);
-            TL.add(fake);
+            pushTabu(fake);
+            pushTabu(fake);
         }
 
-        ObjFunction.evaluate(sol);
+        // The elite moves and the last move no longer describe the solution
+        eliteCount = 0;
+        lastIn = lastOut = -1;
 
         return null;
 
     }
 
+	/* (non-Javadoc)
+	 * @see metaheuristics.tabusearch.AbstractTS#writeElement(java.io.DataOutput, java.lang.Object)
+	 */
+	@Override
+	protected void writeElement(DataOutput out, Integer elem) throws IOException {
+		out.writeInt(elem);
+	}
+
+	/* (non-Javadoc)
+	 * @see metaheuristics.tabusearch.AbstractTS#readElement(java.io.DataInput)
+	 */
+	@Override
+	protected Integer readElement(DataInput in) throws IOException {
+		return in.readInt();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
 	 * This createEmptySol instantiates an empty solution and it attributes a
 	 * zero cost, since it is known that a QBF solution with all variables set
-	 * to zero has also zero cost.
+	 * to zero has also zero cost, apart from the constant term of a presolved
+	 * instance.
 	 */
 	@Override
 	public Solution<Integer> createEmptySol() {
 		Solution<Integer> sol = new Solution<Integer>();
-		sol.cost = 0.0;
+		sol.cost = -cache.offset;
 		return sol;
 	}
 
@@ -219,117 +481,741 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 	 * {@inheritDoc}
 	 * 
 	 * The local search operator developed for the MAX_SC_QBF objective function is
-	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange.
+	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange. The
+	 * moves are evaluated in O(1) with the {@link MAX_SC_QBF_DeltaCache} of the
+	 * current solution, and only the exchanges that may keep the cover are
+	 * generated: if the removed set covers some element alone, the incoming
+	 * sets are taken among the sets covering it (see
+	 * {@link MAX_SC_QBF_DeltaCache#solePivot(int)}), unless the search is
+	 * oscillating, when the exchanges that uncover elements are admissible
+	 * too. With first-improvement,
+	 * the neighborhood is visited in a random order until an improving move
+	 * is found. Otherwise, with an elite candidate list (see {@link #setEliteCandidateList(int, int)}), the
+	 * full neighborhood is only scanned from time to time. With a granular
+	 * neighborhood (see {@link #setGranularNeighborhood(int, int)}), the
+	 * exchanges are restricted to the partners of the removed element, except
+	 * in periodic full scans and when no admissible move is found.
 	 */
 	@Override
 	public Solution<Integer> neighborhoodMove() {
 
-		Double minDeltaCost;
-		Integer bestCandIn = null, bestCandOut = null;
+		portionSize = candidates.sample(portionCL, rng);
 
-		minDeltaCost = Double.POSITIVE_INFINITY;
-		updateCL();
+		boolean granular = partners != null && ++granularAge < granularInterval;
+		if (!granular)
+			granularAge = 0;
+
+		if (isFirstImprovement) {
+			firstImprovementScan(granular);
+			if (granular && moveIn < 0 && moveOut < 0)
+				firstImprovementScan(false);
+		} else if (eliteSize > 0 && eliteCount > 0 && eliteAge < eliteIterations && rescoreElite()) {
+			eliteAge++;
+		} else {
+			fullScan(granular);
+			if (granular && moveIn < 0 && moveOut < 0)
+				fullScan(false);
+			eliteAge = 0;
+		}
+
+		// Implement the best non-tabu move
+		applyMove(moveIn, moveOut);
+		if (oscillating)
+			adjustPenalty();
+
+		return null;
+	}
 
-        ArrayList<Integer> CLPortion = makeCLPortion();
+	/**
+	 * Evaluates every insertion, removal and exchange, selecting the best
+	 * admissible move and, with an elite candidate list, collecting the best
+	 * admissible moves into it.
+	 *
+	 * @param granular
+	 *            Whether the exchanges are restricted to the partner lists.
+	 */
+	private void fullScan(boolean granular) {
 
-        ArrayList<Integer> insertionCandidates = new ArrayList<>();
-        ArrayList<Integer> removalCandidates = new ArrayList<>();
-        ArrayList<ArrayList<Integer>> exchangeCandidates = new ArrayList<>();
+		minDeltaCost = Double.POSITIVE_INFINITY;
+		moveIn = moveOut = -1;
+		eliteCount = 0;
 
 		// Evaluate insertions
-		for (Integer candIn : CLPortion) {
-			Double deltaCost = ObjFunction.evaluateInsertionCost(candIn, sol);
-			if (!TL.contains(candIn) || sol.cost+deltaCost < bestSol.cost) {
-                Solution<Integer> currentSolution = new Solution<>(sol);
-                currentSolution.add(candIn);
-
-				if (deltaCost < minDeltaCost && ObjFunction.isValid(currentSolution)) {
-					minDeltaCost = deltaCost;
-					bestCandIn = candIn;
-					bestCandOut = null;
-                    insertionCandidates.add(candIn);
+		for (int t = 0; t < portionSize; t++)
+			scanMove(candidates.get(t), -1);
+
+		// Evaluate removals
+		for (Integer candOut : sol)
+			scanMove(-1, candOut);
+
+		// Evaluate the exchanges that may keep the cover
+		if (boundedExchanges && !granular && cache.uncovered() == 0) {
+			boundedExchangeScan();
+		} else {
+			for (Integer candOut : sol) {
+				int pivot = cache.solePivot(candOut);
+				if (granular) {
+					for (int candIn : partners[candOut]) {
+						if (inPortion(candIn) && (oscillating || cache.mayKeepCover(candIn, pivot)))
+							scanMove(candIn, candOut);
+					}
+				} else if (pivot >= 0 && !oscillating) {
+					for (int candIn : cache.coveredBy(pivot)) {
+						if (inPortion(candIn) && cache.mayKeepCover(candIn, pivot))
+							scanMove(candIn, candOut);
+					}
+				} else {
+					for (int t = 0; t < portionSize; t++) {
+						int candIn = candidates.get(t);
+						if (oscillating || cache.mayKeepCover(candIn, -1))
+							scanMove(candIn, candOut);
+					}
 				}
 			}
 		}
 
-        // Evaluate removals
-        for (Integer candOut : sol) {
-            Double deltaCost = ObjFunction.evaluateRemovalCost(candOut, sol);
-            if (!TL.contains(candOut) || sol.cost+deltaCost < bestSol.cost) {
-                Solution<Integer> currentSolution = new Solution<>(sol);
-                currentSolution.remove(candOut);
-
-                if (deltaCost < minDeltaCost && ObjFunction.isValid(currentSolution)) {
-                    minDeltaCost = deltaCost;
-                    bestCandIn = null;
-                    bestCandOut = candOut;
-                    removalCandidates.add(candOut);
-                }
-            }
-        }
+		eliteThreshold = eliteCount > 0 ? eliteCost[eliteCount - 1] : Double.NEGATIVE_INFINITY;
+	}
 
-        // Evaluate exchanges
-        for (Integer candIn : CLPortion) {
-            for (Integer candOut : sol) {
-                Double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, sol);
-                if ((!TL.contains(candIn) && !TL.contains(candOut)) || sol.cost + deltaCost < bestSol.cost) {
-                    Solution<Integer> currentSolution = new Solution<>(sol);
-                    currentSolution.add(candIn);
-                    currentSolution.remove(candOut);
-
-                    if (deltaCost < minDeltaCost && ObjFunction.isValid(currentSolution)) {
-                        minDeltaCost = deltaCost;
-                        bestCandIn = candIn;
-                        bestCandOut = candOut;
-                        ArrayList<Integer> exchangeCadidate = new ArrayList<>();
-                        exchangeCadidate.add(bestCandIn);
-                        exchangeCadidate.add(bestCandOut);
-                        exchangeCandidates.add(exchangeCadidate);
-                    }
-                }
-            }
-        }
+	/**
+	 * Evaluates the exchanges of a full scan of a feasible solution in
+	 * increasing order of the lower bound gain(out) - exchangeBound(in) of
+	 * their cost: the removed elements by increasing gain and the candidates
+	 * by decreasing {@link MAX_SC_QBF_DeltaCache#exchangeBound(int)}. For each
+	 * removed element the scan stops at the first candidate whose bound cannot
+	 * beat the best move, or the worst move of a full elite candidate list.
+	 * The bound holds while oscillating too, as the penalty of an exchange
+	 * leaving a cover is never negative.
+	 */
+	private void boundedExchangeScan() {
+		boundIn.clear();
+		for (int t = 0; t < portionSize; t++) {
+			int candIn = candidates.get(t);
+			boundIn.add(candIn, -cache.exchangeBound(candIn));
+		}
+		boundIn.sort();
+		boundOut.clear();
+		for (Integer candOut : sol)
+			boundOut.add(candOut, cache.gain(candOut));
+		boundOut.sort();
+
+		for (int u = 0; u < boundOut.size(); u++) {
+			int candOut = boundOut.item(u);
+			int pivot = cache.solePivot(candOut);
+			if (pivot >= 0 && !oscillating) {
+				for (int candIn : cache.coveredBy(pivot)) {
+					if (inPortion(candIn) && cache.mayKeepCover(candIn, pivot)) {
+						exchangesEvaluated++;
+						scanMove(candIn, candOut);
+					}
+				}
+				continue;
+			}
+			double gainOut = boundOut.key(u);
+			for (int t = 0; t < boundIn.size(); t++) {
+				if (gainOut + boundIn.key(t) >= exchangeThreshold()) {
+					exchangesSkipped += boundIn.size() - t;
+					break;
+				}
+				exchangesEvaluated++;
+				scanMove(boundIn.item(t), candOut);
+			}
+		}
+	}
 
-        if (isFirstImprovement && (!insertionCandidates.isEmpty() || !removalCandidates.isEmpty() || !exchangeCandidates.isEmpty())) {
-            Random random = new Random();
-            int index = random.nextInt(insertionCandidates.size() + removalCandidates.size() + exchangeCandidates.size());
-
-            if (index < insertionCandidates.size()) {
-                bestCandIn = insertionCandidates.get(index);
-                bestCandOut = null;
-            } else if (index < insertionCandidates.size() + removalCandidates.size()) {
-                index -= insertionCandidates.size();
-                bestCandIn = null;
-                bestCandOut = removalCandidates.get(index);
-            } else {
-                index -= insertionCandidates.size() + removalCandidates.size();
-                bestCandIn = exchangeCandidates.get(index).getFirst();
-                bestCandOut = exchangeCandidates.get(index).getLast();
-            }
-        }
+	/**
+	 * @return the cost an exchange must beat to be kept by a full scan.
+	 */
+	private double exchangeThreshold() {
+		if (eliteSize > 0)
+			return eliteCount < eliteSize ? Double.POSITIVE_INFINITY : eliteCost[eliteCount - 1];
+		return minDeltaCost;
+	}
 
-		// Implement the best non-tabu move
-		TL.poll();
-		if (bestCandOut != null) {
-			sol.remove(bestCandOut);
-			CL.add(bestCandOut);
-			TL.add(bestCandOut);
+	/**
+	 * Visits the neighborhood in a random order, drawn from the solver seed,
+	 * and selects the first admissible move that improves the current
+	 * solution. If there is none, or the scan limit is reached first, the
+	 * best admissible move visited is selected. The three neighborhoods are
+	 * visited in a random rotation, the candidates of the CL portion in their
+	 * shuffled order and the elements of the solution, including the removed
+	 * element of the exchanges, from a random offset.
+	 *
+	 * @param granular
+	 *            Whether the exchanges are restricted to the partner lists.
+	 */
+	private void firstImprovementScan(boolean granular) {
+
+		minDeltaCost = Double.POSITIVE_INFINITY;
+		moveIn = moveOut = -1;
+		scanned = 0;
+
+		int size = sol.size();
+		int offset = size > 0 ? rng.nextInt(size) : 0;
+		int first = rng.nextInt(3);
+		for (int k = 0; k < 3; k++) {
+			switch ((first + k) % 3) {
+				case 0:
+					for (int u = 0; u < portionSize; u++) {
+						if (firstImprovementMove(candidates.get(u), -1))
+							return;
+					}
+					break;
+				case 1:
+					for (int t = 0; t < size; t++) {
+						if (firstImprovementMove(-1, sol.get((offset + t) % size)))
+							return;
+					}
+					break;
+				default:
+					for (int t = 0; t < size; t++) {
+						int candOut = sol.get((offset + t) % size);
+						int pivot = cache.solePivot(candOut);
+						if (granular || (pivot >= 0 && !oscillating)) {
+							for (int candIn : granular ? partners[candOut] : cache.coveredBy(pivot)) {
+								if (inPortion(candIn) && (oscillating || cache.mayKeepCover(candIn, pivot)) && firstImprovementMove(candIn, candOut))
+									return;
+							}
+						} else {
+							for (int u = 0; u < portionSize; u++) {
+								int candIn = candidates.get(u);
+								if ((oscillating || cache.mayKeepCover(candIn, -1)) && firstImprovementMove(candIn, candOut))
+									return;
+							}
+						}
+					}
+			}
+		}
+	}
+
+	/**
+	 * @return whether a variable is among the candidates drawn for the
+	 *         current iteration.
+	 */
+	private boolean inPortion(int i) {
+		int t = candidates.indexOf(i);
+		return t >= 0 && t < portionSize;
+	}
+
+	/**
+	 * Evaluates a move during a first-improvement scan.
+	 *
+	 * @return true if the scan must stop, because the move is admissible and
+	 *         improving or the scan limit was reached.
+	 */
+	private boolean firstImprovementMove(int in, int out) {
+		double deltaCost = moveCost(in, out);
+		if (deltaCost < minDeltaCost && isAdmissible(in, out, deltaCost) && isFeasible(in, out)) {
+			minDeltaCost = deltaCost;
+			moveIn = in;
+			moveOut = out;
+			if (deltaCost < 0)
+				return true;
+		}
+		return scanLimit > 0 && ++scanned >= scanLimit;
+	}
+
+	/**
+	 * Evaluates a move during a full scan.
+	 */
+	private void scanMove(int in, int out) {
+		double deltaCost = moveCost(in, out);
+		if (!isAdmissible(in, out, deltaCost))
+			return;
+
+		boolean best = deltaCost < minDeltaCost;
+		boolean elite = eliteSize > 0 && (eliteCount < eliteSize || deltaCost < eliteCost[eliteCount - 1]);
+		if ((!best && !elite) || !isFeasible(in, out))
+			return;
+
+		if (best) {
+			minDeltaCost = deltaCost;
+			moveIn = in;
+			moveOut = out;
+		}
+		if (elite)
+			insertElite(in, out, deltaCost);
+	}
+
+	/**
+	 * Inserts a move into the elite candidate list, kept sorted by cost,
+	 * discarding the worst one when the list is full.
+	 */
+	private void insertElite(int in, int out, double deltaCost) {
+		int k = eliteCount < eliteSize ? eliteCount++ : eliteCount - 1;
+		while (k > 0 && eliteCost[k - 1] > deltaCost) {
+			eliteIn[k] = eliteIn[k - 1];
+			eliteOut[k] = eliteOut[k - 1];
+			eliteCost[k] = eliteCost[k - 1];
+			k--;
+		}
+		eliteIn[k] = in;
+		eliteOut[k] = out;
+		eliteCost[k] = deltaCost;
+	}
+
+	/**
+	 * Re-evaluates only the moves of the elite candidate list and the moves
+	 * involving the elements changed by the last move, which are the ones
+	 * whose cost may have changed the most. As in a full scan, only the
+	 * candidates drawn for the current iteration may enter the solution.
+	 *
+	 * @return false if no admissible move is at least as good as the worst
+	 *         move of the elite candidate list at the last full scan, in which
+	 *         case the neighborhood must be scanned again.
+	 */
+	private boolean rescoreElite() {
+
+		minDeltaCost = Double.POSITIVE_INFINITY;
+		moveIn = moveOut = -1;
+
+		for (int k = 0; k < eliteCount; k++) {
+			int in = eliteIn[k], out = eliteOut[k];
+			if ((in >= 0 && !inPortion(in)) || (out >= 0 && !cache.contains(out)))
+				continue;
+			rescoreMove(in, out);
+		}
+
+		if (lastIn >= 0) {
+			rescoreMove(-1, lastIn);
+			int pivot = cache.solePivot(lastIn);
+			for (int t = 0; t < portionSize; t++) {
+				int candIn = candidates.get(t);
+				if (oscillating || cache.mayKeepCover(candIn, pivot))
+					rescoreMove(candIn, lastIn);
+			}
+		}
+		if (lastOut >= 0 && inPortion(lastOut)) {
+			rescoreMove(lastOut, -1);
+			if (oscillating || cache.mayKeepCover(lastOut, -1)) {
+				for (Integer candOut : sol)
+					rescoreMove(lastOut, candOut);
+			}
+		}
+
+		return minDeltaCost <= eliteThreshold;
+	}
+
+	/**
+	 * Evaluates a move while the elite candidate list is in use.
+	 */
+	private void rescoreMove(int in, int out) {
+		double deltaCost = moveCost(in, out);
+		if (deltaCost < minDeltaCost && isAdmissible(in, out, deltaCost) && isFeasible(in, out)) {
+			minDeltaCost = deltaCost;
+			moveIn = in;
+			moveOut = out;
+		}
+	}
+
+	/**
+	 * Computes the cost variation of a move with the same conventions of
+	 * {@link MAX_SC_QBF_Inverse}: an insertion (out = -1) or exchange that
+	 * covers new elements without improving the objective costs -1.
+	 *
+	 * @param in
+	 *            The element entering the solution, or -1 for a removal.
+	 * @param out
+	 *            The element leaving the solution, or -1 for an insertion.
+	 * @return The variation of the cost of the solution.
+	 */
+	private double moveCost(int in, int out) {
+		double delta;
+		if (oscillating)
+			return penalizedMoveCost(in, out);
+		if (in < 0)
+			return -cache.removalDelta(out);
+		delta = out < 0 ? cache.insertionDelta(in) : cache.exchangeDelta(in, out);
+		return delta <= 0 && cache.newlyCovered(in) > 0 ? -1 : -delta;
+	}
+
+	/**
+	 * Computes the cost variation of a move when the search may leave the
+	 * feasible region: the variation of the objective function plus
+	 * {@link #penaltyWeight} times the variation of the number of uncovered
+	 * elements, which comes in O(1) from the cover counts of the delta cache
+	 * for insertions and removals.
+	 */
+	private double penalizedMoveCost(int in, int out) {
+		if (in < 0)
+			return -cache.removalDelta(out) + penaltyWeight * cache.solelyCovered(out);
+		if (out < 0)
+			return -cache.insertionDelta(in) - penaltyWeight * cache.newlyCovered(in);
+		return -cache.exchangeDelta(in, out) + penaltyWeight * (cache.uncoveredAfterExchange(in, out) - cache.uncovered());
+	}
+
+	/**
+	 * @return true if the move is not tabu or satisfies the aspiration
+	 *         criterion, i.e. leads to a new best solution.
+	 */
+	private boolean isAdmissible(int in, int out, double deltaCost) {
+		double cost = oscillating ? sol.cost + penaltyWeight * cache.uncovered() : sol.cost;
+		return (!isTabu(in) && !isTabu(out)) || cost + deltaCost < bestSol.cost;
+	}
+
+	/**
+	 * @return true if every element is covered after the move, or if the
+	 *         search may leave the feasible region.
+	 */
+	private boolean isFeasible(int in, int out) {
+		if (oscillating)
+			return true;
+		if (in < 0)
+			return cache.uncoveredAfterRemoval(out) == 0;
+		if (out < 0)
+			return cache.uncoveredAfterInsertion(in) == 0;
+		return cache.uncoveredAfterExchange(in, out) == 0;
+	}
+
+	private boolean isTabu(int elem) {
+		return elem >= 0 && tabuCount[elem] > 0;
+	}
+
+	/**
+	 * Implements a move, updating the solution, the candidate list, the tabu
+	 * list and the delta cache. Both elements of the move enter the tabu list,
+	 * or the fake element in place of a missing one.
+	 *
+	 * @param in
+	 *            The element entering the solution, or -1.
+	 * @param out
+	 *            The element leaving the solution, or -1.
+	 */
+	private void applyMove(int in, int out) {
+		if (out >= 0) {
+			removeElement(out);
+			pushTabu(out);
 		} else {
-			TL.add(fake);
+			pushTabu(fake);
 		}
 
-		TL.poll();
-		if (bestCandIn != null) {
-			sol.add(bestCandIn);
-			CL.remove(bestCandIn);
-			TL.add(bestCandIn);
+		if (in >= 0) {
+			insertElement(in);
+			pushTabu(in);
 		} else {
-			TL.add(fake);
+			pushTabu(fake);
 		}
 
-		ObjFunction.evaluate(sol);
-		
-		return null;
+		lastIn = in;
+		lastOut = out;
+	}
+
+	/**
+	 * Inserts an element into the solution, updating the candidates and
+	 * the delta cache, but not the tabu list.
+	 */
+	private void insertElement(Integer elem) {
+		sol.add(elem);
+		candidates.remove(elem);
+		cache.add(elem);
+		sol.cost = -cache.value();
+	}
+
+	/**
+	 * Removes an element from the solution, updating the candidates and
+	 * the delta cache, but not the tabu list.
+	 */
+	private void removeElement(Integer elem) {
+		sol.remove(elem);
+		candidates.add(elem);
+		cache.remove(elem);
+		sol.cost = -cache.value();
+	}
+
+	/**
+	 * Adds an element to the tabu list, releasing the oldest one.
+	 */
+	private void pushTabu(Integer elem) {
+		Integer released = TL.poll();
+		if (released != null && released >= 0)
+			tabuCount[released]--;
+		TL.add(elem);
+		if (elem >= 0)
+			tabuCount[elem]++;
+	}
+
+	/**
+	 * Enables the elite candidate list strategy: a full scan of the
+	 * neighborhood collects its best admissible moves, and the following
+	 * iterations re-evaluate only these moves and the ones involving the
+	 * elements changed by the previous move. The neighborhood is scanned
+	 * again after the given number of iterations or as soon as the best
+	 * re-evaluated move is worse than every move kept at the last scan. The
+	 * list is not saved in checkpoints, so a resumed search starts with a
+	 * full scan. It applies only to best-improvement.
+	 *
+	 * @param size
+	 *            The number of moves kept, or 0 to scan every iteration.
+	 * @param iterations
+	 *            The maximum number of iterations between full scans.
+	 */
+	public void setEliteCandidateList(int size, int iterations) {
+		if (size < 0 || iterations < 0)
+			throw new IllegalArgumentException("Elite candidate list size and iterations must be >= 0");
+		eliteSize = size;
+		eliteIterations = iterations;
+		eliteIn = new int[size];
+		eliteOut = new int[size];
+		eliteCost = new double[size];
+		eliteCount = 0;
+	}
+
+	/**
+	 * Limits the number of moves evaluated by each first-improvement scan.
+	 *
+	 * @param limit
+	 *            The maximum number of moves, or 0 for no limit.
+	 */
+	public void setScanLimit(int limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException("Scan limit must be >= 0");
+		scanLimit = limit;
+	}
+
+	/**
+	 * Enables a granular neighborhood: the exchanges, and the pair moves of
+	 * the intensification, are restricted to pairs of partners, i.e. of
+	 * variables with one of the k strongest interactions or one of the k
+	 * largest shared coverages of either variable. A scan then costs O(n k)
+	 * instead of O(|CL| |sol|). The full neighborhood is still scanned every
+	 * interval iterations, and whenever the granular one has no admissible
+	 * move.
+	 *
+	 * @param k
+	 *            The number of partners chosen by each criterion, or 0 to
+	 *            disable the granular neighborhood.
+	 * @param interval
+	 *            The number of iterations between two full scans.
+	 */
+	public void setGranularNeighborhood(int k, int interval) {
+		if (k < 0 || interval < 1)
+			throw new IllegalArgumentException("k must be >= 0 and the interval >= 1");
+		partners = k > 0 ? cache.partners(k) : null;
+		pairMoves.setPartners(partners);
+		granularInterval = interval;
+		granularAge = 0;
+	}
+
+	/**
+	 * Lets the search cross infeasible regions (strategic oscillation): the
+	 * moves may uncover elements, each uncovered element costing a penalty
+	 * weight. After each move the controller multiplies the weight by a
+	 * factor if the solution is infeasible and divides it otherwise, so that
+	 * the search is driven in and out of the feasible region. Before each
+	 * update of the best solution, an infeasible solution is repaired by a
+	 * greedy cover, see {@link #candidateBest()}. The weight starts at the
+	 * mean absolute gain of the sets in the initial solution.
+	 *
+	 * @param factor
+	 *            The factor of the controller, &gt; 1, or 0 to restrict the
+	 *            search to covers.
+	 */
+	public void setStrategicOscillation(double factor) {
+		if (factor != 0 && factor <= 1)
+			throw new IllegalArgumentException("The factor must be > 1, or 0 to disable");
+		oscillating = factor > 1;
+		oscillationFactor = factor;
+	}
+
+	/**
+	 * @return the number of iterations ended at an infeasible solution.
+	 */
+	public long getInfeasibleIterations() {
+		return infeasibleIterations;
+	}
+
+	/**
+	 * The oscillation controller, see {@link #setStrategicOscillation(double)}.
+	 */
+	private void adjustPenalty() {
+		if (cache.uncovered() > 0) {
+			infeasibleIterations++;
+			penaltyWeight = Math.min(penaltyWeight * oscillationFactor, 1e9);
+		} else {
+			penaltyWeight = Math.max(penaltyWeight / oscillationFactor, 1e-6);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * While oscillating, an infeasible solution is repaired by a greedy cover
+	 * on the delta cache, which inserts the set covering the most uncovered
+	 * elements, ties broken by the largest gain, and is then undone. The
+	 * current solution is not changed, and the trial insertions do not count
+	 * towards the recomputation of the gains. The repair is skipped when the
+	 * insertions cannot reach the best solution: at most one set per
+	 * uncovered element is inserted, among the sets covering some uncovered
+	 * element, each adding at most its
+	 * {@link MAX_SC_QBF_DeltaCache#insertionBound(int)}.
+	 */
+	@Override
+	protected Solution<Integer> candidateBest() {
+		if (cache.uncovered() == 0)
+			return sol;
+
+		double sum = 0, max = 0;
+		for (int t = 0; t < candidates.size(); t++) {
+			int c = candidates.get(t);
+			if (cache.contains(c) || cache.newlyCovered(c) == 0)
+				continue;
+			double bound = Math.max(0, cache.insertionBound(c));
+			sum += bound;
+			max = Math.max(max, bound);
+		}
+		if (-cache.value() - Math.min(sum, cache.uncovered() * max) >= bestSol.cost)
+			return null;
+
+		List<Integer> added = new ArrayList<>();
+		while (cache.uncovered() > 0) {
+			int best = -1;
+			for (int t = 0; t < candidates.size(); t++) {
+				int c = candidates.get(t);
+				if (cache.contains(c) || cache.newlyCovered(c) == 0)
+					continue;
+				if (best < 0 || cache.newlyCovered(c) > cache.newlyCovered(best)
+						|| (cache.newlyCovered(c) == cache.newlyCovered(best) && cache.gain(c) > cache.gain(best)))
+					best = c;
+			}
+			if (best < 0)
+				break;
+			cache.probeAdd(best);
+			added.add(best);
+		}
+
+		Solution<Integer> repaired = null;
+		if (cache.uncovered() == 0) {
+			repaired = new Solution<Integer>(sol);
+			repaired.addAll(added);
+			repaired.cost = -cache.value();
+		}
+		for (int t = added.size() - 1; t >= 0; t--)
+			cache.probeRemove(added.get(t));
+		return repaired;
+	}
+
+	/**
+	 * Makes the full scans visit the exchanges in increasing order of a lower
+	 * bound of their cost, gain(out) - g_in + min_j Q_in,j, and skip those
+	 * that cannot beat the best move found, instead of evaluating all of them.
+	 * The counts of evaluated and skipped exchanges are given by
+	 * {@link #getExchangeCounts()}.
+	 *
+	 * @param bounded
+	 *            Whether the exchanges are cut off by their bounds.
+	 */
+	public void setBoundedExchanges(boolean bounded) {
+		boundedExchanges = bounded;
+		if (bounded && boundIn == null) {
+			boundIn = new BoundOrder(cache.n);
+			boundOut = new BoundOrder(cache.n);
+		}
+	}
+
+	/**
+	 * @return the numbers of exchanges evaluated and skipped by their bounds
+	 *         since {@link #init()}, in this order.
+	 */
+	public long[] getExchangeCounts() {
+		return new long[] { exchangesEvaluated, exchangesSkipped };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Rebuilds the delta cache, the tabu counters and the candidates of the
+	 * new solution, tabu list and candidate list, and empties the elite
+	 * candidate list.
+	 */
+	@Override
+	protected void resetSearchState() {
+		cache.reset(sol);
+		exchangesEvaluated = exchangesSkipped = 0;
+		sol.cost = -cache.value();
+		tabuCount = new int[ObjFunction.getDomainSize()];
+		for (Integer elem : TL) {
+			if (elem >= 0)
+				tabuCount[elem]++;
+		}
+		candidates.clear();
+		for (Integer elem : CL)
+			candidates.add(elem);
+		eliteCount = 0;
+		lastIn = lastOut = -1;
+		infeasibleIterations = 0;
+		if (oscillating) {
+			double sum = 0;
+			for (int i = 0; i < cache.n; i++)
+				sum += Math.abs(cache.gain(i));
+			penaltyWeight = Math.max(sum / cache.n, 1e-6);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Copies the candidates, in their current order, into {@link #CL}.
+	 */
+	@Override
+	protected void prepareCheckpoint() {
+		CL.clear();
+		for (int t = 0; t < candidates.size(); t++)
+			CL.add(candidates.get(t));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Writes the gains of the delta cache, the elite candidate list, the last
+	 * move, the age of the granular neighborhood, the penalty of the
+	 * strategic oscillation and the counters of the search.
+	 */
+	@Override
+	protected void writeSearchState(DataOutput out) throws IOException {
+		cache.writeGains(out);
+		out.writeInt(eliteCount);
+		out.writeInt(eliteAge);
+		out.writeDouble(eliteThreshold);
+		for (int k = 0; k < eliteCount; k++) {
+			out.writeInt(eliteIn[k]);
+			out.writeInt(eliteOut[k]);
+			out.writeDouble(eliteCost[k]);
+		}
+		out.writeInt(lastIn);
+		out.writeInt(lastOut);
+		out.writeInt(granularAge);
+		out.writeDouble(penaltyWeight);
+		out.writeLong(infeasibleIterations);
+		out.writeLong(exchangesEvaluated);
+		out.writeLong(exchangesSkipped);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Reads back the state written by {@link #writeSearchState(DataOutput)}.
+	 */
+	@Override
+	protected void readSearchState(DataInput in) throws IOException {
+		cache.readGains(in);
+		sol.cost = -cache.value();
+		eliteCount = in.readInt();
+		if (eliteCount > eliteSize)
+			throw new IOException("Checkpoint has " + eliteCount + " elite moves, the solver keeps " + eliteSize);
+		eliteAge = in.readInt();
+		eliteThreshold = in.readDouble();
+		for (int k = 0; k < eliteCount; k++) {
+			eliteIn[k] = in.readInt();
+			eliteOut[k] = in.readInt();
+			eliteCost[k] = in.readDouble();
+		}
+		lastIn = in.readInt();
+		lastOut = in.readInt();
+		granularAge = in.readInt();
+		penaltyWeight = in.readDouble();
+		infeasibleIterations = in.readLong();
+		exchangesEvaluated = in.readLong();
+		exchangesSkipped = in.readLong();
 	}
 
 	/**
@@ -337,7 +1223,7 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 	 * 
 	 */
 	public static void main(String[] args) {
-		if (args.length == 0) {
+		if (args.length < 5) {
 			printUsage();
 			return;
 		}
@@ -351,37 +1237,252 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 			String mode         = args[idx++];
 			boolean firstImprov = Boolean.parseBoolean(args[idx++]);
 
-			boolean withIntensification = false;
-			double portionCL = 1.0;
-            int theta = 0;
-
-			switch (mode.toLowerCase()) {
-				case "standard":
-					break;
-				case "prob_ts":
-					portionCL = Double.parseDouble(args[idx++]);
-					break;
-				case "intensify":
-					withIntensification = true;
-                    theta = Integer.parseInt(args[idx++]);
-					break;
-				case "prob_plus_intensify":
-					portionCL = Double.parseDouble(args[idx++]);
-                    theta = Integer.parseInt(args[idx++]);
-					withIntensification = true;
-					break;
-				default:
-					throw new IllegalArgumentException("Unknown mode: " + mode);
+			Configuration config = Configuration.of(tenure, mode, firstImprov, args, idx);
+			idx += config.modeParams;
+
+			String traceFile = null, checkpointFile = null, resumeFile = null;
+			int checkpointInterval = 60;
+			int eliteSize = 0, eliteIterations = 10;
+			int scanLimit = 0;
+			double intensifyBudget = 1.0;
+			double alpha = 0.0;
+			int poolSize = 0, poolKeep = 1, poolDistance = 0;
+			long anytimeMillis = -1;
+			int granularK = 0, granularInterval = 50;
+			boolean bounded = false;
+			boolean presolveInstance = false;
+			int exactSize = BB_MAX_SC_QBF.DEFAULT_SIZE;
+			int lnsSize = 0;
+			double oscillationFactor = 0;
+			double lnsSeconds = 60;
+			double adaptiveRate = 0, minPortion = 0.05;
+			long widenAfter = 500;
+			List<StopCriterion> stopCriteria = new ArrayList<>();
+			while (idx < args.length) {
+				String option = args[idx++];
+				switch (option) {
+					case "--trace":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --trace requires <file>.");
+						traceFile = args[idx++];
+						break;
+					case "--checkpoint":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --checkpoint requires <file> [intervalSec].");
+						checkpointFile = args[idx++];
+						if (idx < args.length && !args[idx].startsWith("--"))
+							checkpointInterval = Integer.parseInt(args[idx++]);
+						if (checkpointInterval <= 0)
+							throw new IllegalArgumentException("<intervalSec> must be > 0.");
+						break;
+					case "--target":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --target requires <value>.");
+						stopCriteria.add(StopCriterion.targetCost(-Double.parseDouble(args[idx++])));
+						break;
+					case "--max-iters":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --max-iters requires <n>.");
+						stopCriteria.add(StopCriterion.maxIterations(Long.parseLong(args[idx++])));
+						break;
+					case "--stall-iters":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --stall-iters requires <n>.");
+						stopCriteria.add(StopCriterion.stagnationIterations(Long.parseLong(args[idx++])));
+						break;
+					case "--stall-secs":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --stall-secs requires <s>.");
+						stopCriteria.add(StopCriterion.stagnationSeconds(Double.parseDouble(args[idx++])));
+						break;
+					case "--cpu-time":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --cpu-time requires <s>.");
+						stopCriteria.add(StopCriterion.cpuTime(Double.parseDouble(args[idx++])));
+						break;
+					case "--resume":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --resume requires <file>.");
+						resumeFile = args[idx++];
+						break;
+					case "--adaptive-portion":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --adaptive-portion requires <iters/s> [minPortion] [stallIters].");
+						adaptiveRate = Double.parseDouble(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							minPortion = Double.parseDouble(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							widenAfter = Long.parseLong(args[idx++]);
+						if (adaptiveRate <= 0 || minPortion <= 0.0 || minPortion > 1.0)
+							throw new IllegalArgumentException("<iters/s> must be > 0 and minPortion in (0,1].");
+						break;
+					case "--alpha":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --alpha requires <a>.");
+						alpha = Double.parseDouble(args[idx++]);
+						if (alpha < 0.0 || alpha > 1.0)
+							throw new IllegalArgumentException("alpha must be in [0,1].");
+						break;
+					case "--grasp-pool":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --grasp-pool requires <n> [keep] [minDist].");
+						poolSize = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							poolKeep = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							poolDistance = Integer.parseInt(args[idx++]);
+						if (poolSize < 1 || poolKeep < 1 || poolDistance < 0)
+							throw new IllegalArgumentException("<n> and keep must be >= 1 and minDist >= 0.");
+						break;
+					case "--presolve":
+						presolveInstance = true;
+						break;
+					case "--bounded":
+						bounded = true;
+						break;
+					case "--exact":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --exact requires <n>.");
+						exactSize = Integer.parseInt(args[idx++]);
+						break;
+					case "--oscillation":
+						oscillationFactor = 1.05;
+						if (idx < args.length && !args[idx].startsWith("--"))
+							oscillationFactor = Double.parseDouble(args[idx++]);
+						break;
+					case "--lns":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --lns requires <size> [secs].");
+						lnsSize = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							lnsSeconds = Double.parseDouble(args[idx++]);
+						break;
+					case "--granular":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --granular requires <K> [iters].");
+						granularK = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							granularInterval = Integer.parseInt(args[idx++]);
+						break;
+					case "--anytime":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --anytime requires <ms>.");
+						anytimeMillis = Long.parseLong(args[idx++]);
+						break;
+					case "--intensify-budget":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --intensify-budget requires <f>.");
+						intensifyBudget = Double.parseDouble(args[idx++]);
+						break;
+					case "--scan-limit":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --scan-limit requires <n>.");
+						scanLimit = Integer.parseInt(args[idx++]);
+						break;
+					case "--elite":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --elite requires <K> [iters].");
+						eliteSize = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							eliteIterations = Integer.parseInt(args[idx++]);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option: " + option);
+				}
 			}
 
 			long t0 = System.currentTimeMillis();
-			TS_MAX_SC_QBF ts = new TS_MAX_SC_QBF(tenure, timeLimitSec, theta, filename, portionCL, firstImprov, withIntensification);
-
-			Solution<Integer> bestSol = ts.solve();
+			MAX_SC_QBF original = new MAX_SC_QBF(filename);
+			MAX_SC_QBF_Presolve presolve = null;
+			if (presolveInstance) {
+				presolve = new MAX_SC_QBF_Presolve(original);
+				System.out.println(presolve);
+				if (presolve.getReduced().size == 0) {
+					// every variable is fixed
+					Solution<Integer> empty = new Solution<Integer>();
+					new MAX_SC_QBF_Inverse(presolve.getReduced()).evaluate(empty);
+					System.out.println("Best solution found: " + presolve.expand(empty));
+					return;
+				}
+			}
+			final MAX_SC_QBF problem = presolve != null ? presolve.getReduced() : original;
+			TS_MAX_SC_QBF ts = config.build(problem, timeLimitSec);
+			// the search stops as soon as it reaches the upper bound, computed
+			// meanwhile so that the search, and an anytime answer, do not wait
+			final MAX_SC_QBF_Presolve boundPresolve = presolve;
+			FutureTask<Double> upperBound = new FutureTask<>(() -> (boundPresolve != null ? boundPresolve : new MAX_SC_QBF_Presolve(problem)).upperBound());
+			Thread boundThread = new Thread(upperBound, "upper-bound");
+			boundThread.setDaemon(true);
+			boundThread.start();
+			ts.addStopCriterion(StopCriterion.upperBound(upperBound));
+			if (poolSize > 0 && resumeFile == null) {
+				final double poolAlpha = alpha;
+				SeedPool<Integer> pool = SeedPool.build(() -> {
+					TS_MAX_SC_QBF seeder = config.build(problem, timeLimitSec);
+					seeder.setAlpha(poolAlpha);
+					return seeder;
+				}, poolSize, poolKeep, poolDistance, 0, Runtime.getRuntime().availableProcessors());
+				System.out.printf("Seed pool: %d of %d constructions kept, best cost=%s%n", pool.getSeeds().size(), pool.getConstructions(), pool.getBest().cost);
+				ts.setInitialSolution(pool.getBest());
+			}
+			if (traceFile != null)
+				ts.setTrace(ConvergenceTrace.toFile(traceFile));
+			if (checkpointFile != null)
+				ts.setCheckpoint(checkpointFile, checkpointInterval);
+			for (StopCriterion criterion : stopCriteria)
+				ts.addStopCriterion(criterion);
+			if (eliteSize > 0)
+				ts.setEliteCandidateList(eliteSize, eliteIterations);
+			ts.setScanLimit(scanLimit);
+			if (granularK > 0)
+				ts.setGranularNeighborhood(granularK, granularInterval);
+			ts.setBoundedExchanges(bounded);
+			ts.setStrategicOscillation(oscillationFactor);
+			ts.setIntensificationBudget(intensifyBudget);
+			ts.setAlpha(alpha);
+			if (adaptiveRate > 0)
+				ts.setAdaptivePortion(adaptiveRate, minPortion, widenAfter);
+
+			Solution<Integer> bestSol;
+			boolean proven = false;
+			boolean exact = exactSize > 0 && problem.size <= Math.min(exactSize, BB_MAX_SC_QBF.MAX_SIZE) && resumeFile == null;
+			if (exact) {
+				// small instances are solved exactly, from the constructive solution
+				BB_MAX_SC_QBF bb = new BB_MAX_SC_QBF(problem, timeLimitSec, Runtime.getRuntime().availableProcessors());
+				bb.setIncumbent(ts.constructiveHeuristic());
+				bestSol = bb.solve();
+				System.out.printf("Branch-and-bound: %d nodes, %s%n", bb.getNodes(), bb.isOptimal() ? "optimal" : "time limit reached, not proven optimal");
+				proven = bb.isOptimal();
+			} else if (anytimeMillis >= 0 && resumeFile == null) {
+				AnytimeSearch<Integer> search = ts.solveAnytime(anytimeMillis, ForkJoinPool.commonPool(), sol -> System.out.printf("Improvement: cost=%s, size=%d (%.3f s)%n", sol.cost, sol.size(), (System.currentTimeMillis() - t0) / 1000.0));
+				System.out.printf("First feasible: cost=%s, size=%d (%.3f ms)%n", search.getInitial().cost, search.getInitial().size(), search.getLatencyNanos() / 1e6);
+				bestSol = search.getResult().join();
+			} else {
+				bestSol = resumeFile != null ? ts.resume(resumeFile) : ts.solve();
+			}
+			if (lnsSize > 0 && !exact) {
+				LNS_MAX_SC_QBF lns = new LNS_MAX_SC_QBF(problem, lnsSize, Runtime.getRuntime().availableProcessors(), 0);
+				double before = bestSol.cost;
+				bestSol = lns.improve(bestSol, lnsSeconds);
+				System.out.printf("LNS: %d subproblems, %d improvements, cost %s -> %s%n", lns.getSubproblems(), lns.getImprovements(), before, bestSol.cost);
+			}
 			long t1 = System.currentTimeMillis();
+			if (presolve != null) {
+				// back to the original indexes, evaluated on the original instance
+				bestSol = presolve.expand(bestSol);
+				new MAX_SC_QBF_Inverse(original).evaluate(bestSol);
+			}
 
 			System.out.println("Best solution found: " + bestSol);
+			double bound = proven ? -bestSol.cost : upperBound.get();
+			System.out.printf("Upper bound: %.2f, gap: %.3f%%%n", bound, QBF_UpperBound.gap(bound, -bestSol.cost));
 			System.out.printf("Time (s): %.3f%n", (t1 - t0) / 1000.0);
+			if (bounded) {
+				long[] counts = ts.getExchangeCounts();
+				System.out.printf("Exchanges evaluated: %d, skipped by bounds: %d%n", counts[0], counts[1]);
+			}
+			if (oscillationFactor > 0)
+				System.out.printf("Infeasible iterations: %d of %d%n", ts.getInfeasibleIterations(), ts.getIterations());
 		} catch (Exception e) {
 			e.printStackTrace();
 			printUsage();
@@ -390,12 +1491,34 @@ public class TS_MAX_SC_QBF extends AbstractTS<Integer> {
 
 	private static void printUsage() {
 		System.out.println("Uso (single):");
-		System.out.println("  java -cp bin problems.max_sc_qbf.solvers.TS_MAX_SC_QBF <filename> <tenure> <timeLimitSec> <mode> <firstImprovement(true/false)> [mode params]");
+		System.out.println("  java -cp bin problems.max_sc_qbf.solvers.TS_MAX_SC_QBF <filename> <tenure> <timeLimitSec> <mode> <firstImprovement(true/false)> [mode params] [options]");
 		System.out.println("Modos:");
 		System.out.println("  standard");
 		System.out.println("  prob_ts <portionCL (0,1]>");
 		System.out.println("  intensify <theta>");
 		System.out.println("  prob_plus_intensify <portionCL> <theta>");
+		System.out.println("Opções:");
+		System.out.println("  --trace <file>      convergence trace (CSV, or binary if <file> ends with .bin)");
+		System.out.println("  --checkpoint <file> [intervalSec]   periodic checkpoint of the search (default: 60s)");
+		System.out.println("  --resume <file>     continue the search saved in a checkpoint");
+		System.out.println("  --target <value>    stop when the objective reaches <value>");
+		System.out.println("  --max-iters <n>     stop after <n> iterations");
+		System.out.println("  --stall-iters <n>   stop after <n> iterations without improvement");
+		System.out.println("  --stall-secs <s>    stop after <s> seconds without improvement");
+		System.out.println("  --cpu-time <s>      stop after <s> seconds of CPU time of the search thread");
+		System.out.println("  --adaptive-portion <iters/s> [minPortion] [stallIters]   adapt portionCL to a target iteration rate (default: 0.05, 500)");
+		System.out.println("  --alpha <a>         greediness of the constructive heuristic, in [0,1] (default: 0, greedy)");
+		System.out.println("  --grasp-pool <n> [keep] [minDist]   start from the best of <n> parallel GRASP constructions, keeping <keep> solutions at least <minDist> apart (default: 1, 0; use --alpha > 0)");
+		System.out.println("  --presolve          fix forced, persistent and dominated sets and search the reduced instance");
+		System.out.println("  --exact <n>         solve instances of at most <n> sets (after presolve) by branch-and-bound, stopping when optimality is proven (at most " + BB_MAX_SC_QBF.MAX_SIZE + "; default: " + BB_MAX_SC_QBF.DEFAULT_SIZE + "; 0 disables it)");
+		System.out.println("  --oscillation [f]   let the search uncover elements at a penalty per element, multiplied by <f> while infeasible and divided while feasible (default: 1.05)");
+		System.out.println("  --lns <size> [secs] after the search, re-optimize subsets of <size> correlated sets exactly, the others fixed (default: 60s)");
+		System.out.println("  --bounded           visit exchanges by their cost bounds and skip those that cannot beat the best move");
+		System.out.println("  --granular <K> [iters]   restrict exchanges to the K strongest partners of each set, with a full scan every <iters> iterations (default: 50)");
+		System.out.println("  --anytime <ms>      return a greedy feasible cover within <ms> and report each improvement of the search");
+		System.out.println("  --intensify-budget <f>  intensification takes at most the fraction <f> of the search time");
+		System.out.println("  --scan-limit <n>    evaluate at most <n> moves per first-improvement iteration");
+		System.out.println("  --elite <K> [iters] re-evaluate only the K best moves between full scans (default: 10 iterations)");
 		System.out.println();
 	}
 
@@ -0,0 +1,285 @@
+package problems.max_sc_qbf.solvers;
+
+import problems.max_sc_qbf.MAX_SC_QBF;
+import problems.max_sc_qbf.MAX_SC_QBF_Presolve;
+import solutions.Solution;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks the exact components of the MAX_SC_QBF solvers against the
+ * enumeration of every subset, on instances small enough to enumerate: the
+ * bundled ones given on the command line and random ones. For each instance:
+ * <ul>
+ * <li>{@link MAX_SC_QBF_Presolve} must give every solution of the reduced
+ * instance the value of its {@link MAX_SC_QBF_Presolve#expand(Solution)
+ * expansion} in the original instance, up to a relative
+ * {@link #VALUE_TOLERANCE}, and the same coverage, and the reduced instance
+ * must have the optimal value of the original one;</li>
+ * <li>{@link BB_MAX_SC_QBF} must prove optimal a cover whose value is the one
+ * found by the enumeration.</li>
+ * </ul>
+ * It is a driver, run by hand after changing these components; it exits with
+ * status 1 if any check fails.
+ */
+public class Verify_MAX_SC_QBF {
+
+	/**
+	 * relative tolerance between the values of a solution computed from
+	 * scratch in the reduced and in the original instance
+	 */
+	static final double VALUE_TOLERANCE = 1e-12;
+
+	/**
+	 * relative tolerance between optimal values, which the enumeration and
+	 * the branch-and-bound accumulate over many flips
+	 */
+	static final double OPTIMUM_TOLERANCE = 1e-9;
+
+	/**
+	 * the largest number of sets enumerated
+	 */
+	static final int MAX_SIZE = 26;
+
+	private int samples = 200;
+	private int failures;
+
+	/**
+	 * Runs every check on an instance and prints a line with its outcome.
+	 */
+	void check(String name, MAX_SC_QBF problem, Random rng) throws InterruptedException {
+		List<String> errors = new ArrayList<>();
+		double optimum = optimum(problem);
+
+		MAX_SC_QBF_Presolve presolve = new MAX_SC_QBF_Presolve(problem);
+		MAX_SC_QBF reduced = presolve.getReduced();
+		double valueError = 0;
+		for (int t = 0; t < samples; t++) {
+			Solution<Integer> sol = new Solution<Integer>();
+			for (int i = 0; i < reduced.size; i++) {
+				if (t == 1 || (t > 1 && rng.nextBoolean()))
+					sol.add(i);
+			}
+			double value = reduced.evaluate(sol);
+			Solution<Integer> expanded = presolve.expand(sol);
+			double expected = problem.evaluate(expanded);
+			valueError = Math.max(valueError, Math.abs(value - expected) / Math.max(1, Math.abs(expected)));
+			if (reduced.isValid(sol) != problem.isValid(expanded))
+				errors.add("presolve changes the coverage of " + expanded);
+		}
+		if (valueError > VALUE_TOLERANCE)
+			errors.add(String.format(Locale.US, "presolve changes values by %.2e", valueError));
+		double reducedOptimum = optimum(reduced);
+		if (!same(reducedOptimum, optimum))
+			errors.add("presolve changes the optimum to " + reducedOptimum);
+
+		BB_MAX_SC_QBF bb = new BB_MAX_SC_QBF(problem, 60, Runtime.getRuntime().availableProcessors());
+		Solution<Integer> exact = bb.solve();
+		if (exact == null) {
+			if (optimum != Double.NEGATIVE_INFINITY)
+				errors.add("branch-and-bound found no cover");
+		} else {
+			double value = -exact.cost;
+			if (!bb.isOptimal())
+				errors.add("branch-and-bound did not prove optimality");
+			if (!problem.isValid(exact))
+				errors.add("branch-and-bound returned an infeasible solution");
+			if (!same(problem.evaluate(new Solution<Integer>(exact)), value))
+				errors.add("branch-and-bound reports " + value + " for a solution of value " + problem.evaluate(new Solution<Integer>(exact)));
+			if (!same(value, optimum))
+				errors.add("branch-and-bound found " + value + ", the optimum is " + optimum);
+		}
+
+		System.out.printf(Locale.US, "%s n=%d %s optimum=%.6f value_error=%.2e %s%n", name, problem.size, presolve, optimum, valueError,
+				errors.isEmpty() ? "OK" : "FAILED");
+		for (String error : errors)
+			System.out.println("  " + error);
+		if (!errors.isEmpty())
+			failures++;
+	}
+
+	private static boolean same(double a, double b) {
+		if (a == b)
+			return true;
+		return Math.abs(a - b) <= OPTIMUM_TOLERANCE * Math.max(1, Math.max(Math.abs(a), Math.abs(b)));
+	}
+
+	/**
+	 * Enumerates every subset of the sets in Gray code order, so that
+	 * consecutive subsets differ by one set and each costs O(n). The value is
+	 * computed again from scratch for each new best cover and periodically,
+	 * so that the optimum does not carry the rounding errors of the flips.
+	 *
+	 * @return the optimal value, or -infinity if no subset is a cover.
+	 */
+	static double optimum(MAX_SC_QBF problem) {
+		int n = problem.size;
+		if (n > MAX_SIZE)
+			throw new IllegalArgumentException("Only instances of at most " + MAX_SIZE + " sets are enumerated");
+		double[][] A = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++)
+				A[i][j] = problem.A[i][j];
+		}
+		int[][] covers = new int[n][];
+		for (int i = 0; i < n; i++) {
+			covers[i] = new int[problem.S[i].length];
+			for (int t = 0; t < covers[i].length; t++)
+				covers[i][t] = problem.S[i][t];
+		}
+
+		boolean[] in = new boolean[n];
+		int[] coverCount = new int[problem.elements];
+		int uncovered = problem.elements;
+		double value = problem.offset;
+		double best = uncovered == 0 ? value : Double.NEGATIVE_INFINITY;
+		for (long g = 1; g < 1L << n; g++) {
+			int i = Long.numberOfTrailingZeros(g);
+			double gain = A[i][i];
+			for (int j = 0; j < n; j++) {
+				if (in[j] && j != i)
+					gain += A[i][j] + A[j][i];
+			}
+			in[i] = !in[i];
+			if (in[i]) {
+				value += gain;
+				for (int k : covers[i]) {
+					if (coverCount[k]++ == 0)
+						uncovered--;
+				}
+			} else {
+				value -= gain;
+				for (int k : covers[i]) {
+					if (--coverCount[k] == 0)
+						uncovered++;
+				}
+			}
+			if ((g & 0xFFFF) == 0)
+				value = valueOf(A, in, problem.offset);
+			if (uncovered == 0 && value > best - 1e-6)
+				best = Math.max(best, valueOf(A, in, problem.offset));
+		}
+		return best;
+	}
+
+	private static double valueOf(double[][] A, boolean[] in, double offset) {
+		double value = offset;
+		for (int i = 0; i < in.length; i++) {
+			if (!in[i])
+				continue;
+			for (int j = 0; j < in.length; j++) {
+				if (in[j])
+					value += A[i][j];
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Draws an instance with as many elements as sets, in which each set
+	 * covers one to three elements and every element is covered. About a
+	 * third of the coefficients are zero and some sets repeat the cover of
+	 * another, so that the reductions of the presolve apply.
+	 */
+	static MAX_SC_QBF randomInstance(int n, Random rng) {
+		Double[][] A = new Double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double a = j < i || rng.nextInt(3) == 0 ? 0 : Math.round(rng.nextDouble() * 2000 - 1000) / 100.0;
+				A[i][j] = a;
+			}
+		}
+		BitSet[] coverBits = new BitSet[n];
+		for (int i = 0; i < n; i++) {
+			coverBits[i] = new BitSet(n);
+			if (i > 0 && rng.nextInt(5) == 0) {
+				coverBits[i].or(coverBits[rng.nextInt(i)]);
+				continue;
+			}
+			int size = 1 + rng.nextInt(3);
+			for (int t = 0; t < size; t++)
+				coverBits[i].set(rng.nextInt(n));
+		}
+		for (int k = 0; k < n; k++)
+			coverBits[rng.nextInt(n)].set(k);
+		return new MAX_SC_QBF(A, coverBits, n, 0);
+	}
+
+	/**
+	 * Runs the checks from the command line.
+	 */
+	public static void main(String[] args) {
+		try {
+			Verify_MAX_SC_QBF verify = new Verify_MAX_SC_QBF();
+			List<String> instances = new ArrayList<>();
+			int randomInstances = 50, minSize = 8, maxSize = 16;
+			long seed = 0;
+
+			int idx = 0;
+			while (idx < args.length) {
+				String arg = args[idx++];
+				switch (arg) {
+					case "--random":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --random requires <count> [minSize] [maxSize].");
+						randomInstances = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							minSize = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							maxSize = Integer.parseInt(args[idx++]);
+						if (randomInstances < 0 || minSize < 1 || maxSize < minSize || maxSize > MAX_SIZE)
+							throw new IllegalArgumentException("<count> must be >= 0 and 1 <= minSize <= maxSize <= " + MAX_SIZE + ".");
+						break;
+					case "--samples":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --samples requires <n>.");
+						verify.samples = Integer.parseInt(args[idx++]);
+						break;
+					case "--seed":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --seed requires <s>.");
+						seed = Long.parseLong(args[idx++]);
+						break;
+					default:
+						if (arg.startsWith("--"))
+							throw new IllegalArgumentException("Unknown option: " + arg);
+						instances.add(arg);
+				}
+			}
+
+			Random rng = new Random(seed);
+			for (String instance : instances)
+				verify.check(new File(instance).getName(), new MAX_SC_QBF(instance), rng);
+			for (int r = 0; r < randomInstances; r++) {
+				int n = minSize + rng.nextInt(maxSize - minSize + 1);
+				verify.check("random-" + r, randomInstance(n, rng), rng);
+			}
+
+			System.out.println(verify.failures == 0 ? "All checks passed." : verify.failures + " instance(s) failed.");
+			if (verify.failures > 0)
+				System.exit(1);
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			e.printStackTrace();
+			printUsage();
+			System.exit(2);
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Uso:");
+		System.out.println("  java -cp bin problems.max_sc_qbf.solvers.Verify_MAX_SC_QBF [instance...] [options]");
+		System.out.println("Opções:");
+		System.out.println("  --random <count> [minSize] [maxSize]   random instances checked (default: 50, 8, 16)");
+		System.out.println("  --samples <n>       random solutions of the reduced instance compared with the original (default: 200)");
+		System.out.println("  --seed <s>          seed of the random instances and solutions (default: 0)");
+		System.out.println("Instances of at most " + MAX_SIZE + " sets are enumerated.");
+		System.out.println();
+	}
+
+}
@@ -55,6 +55,21 @@ public class QBF implements Evaluator<Integer> {
 		variables = allocateVariables();
 	}
 
+	/**
+	 * Creates an evaluator over the same instance as another one. The
+	 * coefficients are shared, only the working array of variables is
+	 * allocated again, so that each copy can be used by a different thread
+	 * without reading the instance file again.
+	 *
+	 * @param other
+	 *            The evaluator whose instance is shared.
+	 */
+	public QBF(QBF other) {
+		size = other.size;
+		A = other.A;
+		variables = allocateVariables();
+	}
+
 	/**
 	 * Evaluates the value of a solution by transforming it into a vector. This
 	 * is required to perform the matrix multiplication which defines a QBF.
@@ -387,7 +402,7 @@ public class QBF implements Evaluator<Integer> {
 	 * @throws IOException
 	 *             Necessary for I/O operations.
 	 */
-	protected Integer readInput(String filename) throws IOException {
+	private Integer readInput(String filename) throws IOException {
 
 		Reader fileInst = new BufferedReader(new FileReader(filename));
 		StreamTokenizer stok = new StreamTokenizer(fileInst);
@@ -415,7 +430,7 @@ public class QBF implements Evaluator<Integer> {
 	 * 
 	 * @return a pointer to the array of domain variables.
 	 */
-	protected Double[] allocateVariables() {
+	private Double[] allocateVariables() {
 		Double[] _variables = new Double[size];
 		return _variables;
 	}
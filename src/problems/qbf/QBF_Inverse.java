@@ -24,6 +24,16 @@ public class QBF_Inverse extends QBF {
 		super(filename);
 	}
 
+	/**
+	 * Constructor for the QBF_Inverse class over an instance already loaded.
+	 *
+	 * @param other
+	 *            The evaluator whose instance is shared, see {@link QBF#QBF(QBF)}.
+	 */
+	public QBF_Inverse(QBF other) {
+		super(other);
+	}
+
 
 	/* (non-Javadoc)
 	 * @see problems.qbf.QBF#evaluate()
@@ -0,0 +1,249 @@
+package problems.qbf;
+
+/**
+ * Upper bounds for the maximization of a QBF f(x) = c + x'.A.x, optionally
+ * subject to set cover constraints, i.e. every element must be covered by
+ * some selected variable. Writing Q_ij = A_ij + A_ji, every bound is a sum of
+ * max(0, r_i) over the rows plus a constant, where r_i is the diagonal
+ * coefficient of row i plus its share of the interactions:
+ * <ul>
+ * <li>the row bounds give each positive Q_ij wholly to the first of its rows,
+ * or half to each of them, and drop the negative ones;</li>
+ * <li>the roof-duality-style bound splits each positive Q_ij between its rows
+ * by a fraction, since x_i x_j &lt;= a x_i + (1 - a) x_j, and charges a
+ * fraction g of each negative Q_ij to both rows at a constant cost -g Q_ij,
+ * since Q_ij x_i x_j &lt;= g (Q_ij x_i + Q_ij x_j - Q_ij). With set cover
+ * constraints, a Lagrangian multiplier m_k &gt;= 0 of each element adds m_k
+ * to the rows of its sets at a constant cost m_k. The fractions and the
+ * multipliers are tuned by a projected subgradient method.</li>
+ * </ul>
+ */
+public class QBF_UpperBound {
+
+	/**
+	 * Maximum number of iterations of the subgradient method.
+	 */
+	private static final int MAX_ITERATIONS = 500;
+
+	/**
+	 * Number of iterations without improvement after which the step is halved.
+	 */
+	private static final int HALVING_PATIENCE = 20;
+
+	private final int n;
+	private final double[] diag;
+	private final double[][] Q;
+	private final double offset;
+
+	/**
+	 * coverers[k] = the variables covering element k, or null without set
+	 * cover constraints
+	 */
+	private final int[][] coverers;
+
+	/**
+	 * Creates the bounds of a QBF without constraints.
+	 *
+	 * @param problem
+	 *            The QBF.
+	 */
+	public QBF_UpperBound(QBF problem) {
+		this(problem.A, 0, null);
+	}
+
+	/**
+	 * Creates the bounds of a QBF.
+	 *
+	 * @param A
+	 *            The matrix of coefficients.
+	 * @param offset
+	 *            The constant term c.
+	 * @param coverers
+	 *            coverers[k] = the variables covering element k, for the set
+	 *            cover constraints; null if there are none.
+	 */
+	public QBF_UpperBound(Double[][] A, double offset, int[][] coverers) {
+		this.n = A.length;
+		this.offset = offset;
+		this.coverers = coverers;
+		diag = new double[n];
+		Q = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			diag[i] = A[i][i];
+			for (int j = i + 1; j < n; j++)
+				Q[i][j] = Q[j][i] = A[i][j] + A[j][i];
+		}
+	}
+
+	/**
+	 * The better of the two row bounds, in O(n^2).
+	 *
+	 * @return an upper bound of the maximum of f.
+	 */
+	public double rowBound() {
+		double first = 0, half = 0;
+		for (int i = 0; i < n; i++) {
+			double after = 0, all = 0;
+			for (int j = 0; j < n; j++) {
+				if (j != i && Q[i][j] > 0) {
+					all += Q[i][j];
+					if (j > i)
+						after += Q[i][j];
+				}
+			}
+			first += Math.max(0, diag[i] + after);
+			half += Math.max(0, diag[i] + all / 2);
+		}
+		return offset + Math.min(first, half);
+	}
+
+	/**
+	 * The roof-duality-style bound, with the Lagrangian multipliers of the set
+	 * cover constraints, in O(n^2) per iteration. The subgradient method
+	 * starts from the half row bound and uses the Polyak step towards a lower
+	 * bound.
+	 *
+	 * @param lowerBound
+	 *            The value of a feasible solution, e.g. the incumbent of a
+	 *            search.
+	 * @return an upper bound of the maximum of f.
+	 */
+	public double roofBound(double lowerBound) {
+		// share[i][j], i < j = the fraction of a positive Q_ij given to row i,
+		// or the fraction of a negative Q_ij charged to both rows
+		double[][] share = new double[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = i + 1; j < n; j++)
+				share[i][j] = Q[i][j] > 0 ? 0.5 : 0;
+		}
+		int m = coverers != null ? coverers.length : 0;
+		double[] multiplier = new double[m];
+
+		double[] row = new double[n];
+		boolean[] positive = new boolean[n];
+		double best = Double.POSITIVE_INFINITY, lambda = 2;
+		int stale = 0;
+		for (int it = 0; it < MAX_ITERATIONS && lambda > 1e-4; it++) {
+			double bound = offset;
+			for (int i = 0; i < n; i++)
+				row[i] = diag[i];
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					double q = Q[i][j];
+					if (q > 0) {
+						row[i] += share[i][j] * q;
+						row[j] += (1 - share[i][j]) * q;
+					} else if (q < 0) {
+						row[i] += share[i][j] * q;
+						row[j] += share[i][j] * q;
+						bound -= share[i][j] * q;
+					}
+				}
+			}
+			for (int k = 0; k < m; k++) {
+				for (int i : coverers[k])
+					row[i] += multiplier[k];
+				bound -= multiplier[k];
+			}
+			for (int i = 0; i < n; i++) {
+				positive[i] = row[i] > 0;
+				if (positive[i])
+					bound += row[i];
+			}
+
+			if (bound < best - 1e-9) {
+				best = bound;
+				stale = 0;
+			} else if (++stale >= HALVING_PATIENCE) {
+				lambda /= 2;
+				stale = 0;
+			}
+			if (best - lowerBound <= 1e-9)
+				break;
+
+			// the subgradient, then the projected step
+			double norm = 0;
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++)
+					norm += Math.pow(subgradient(i, j, positive), 2);
+			}
+			for (int k = 0; k < m; k++)
+				norm += Math.pow(subgradient(k, positive, multiplier), 2);
+			if (norm == 0)
+				break;
+			double step = lambda * (bound - lowerBound) / norm;
+			for (int i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (Q[i][j] != 0)
+						share[i][j] = Math.min(1, Math.max(0, share[i][j] - step * subgradient(i, j, positive)));
+				}
+			}
+			for (int k = 0; k < m; k++)
+				multiplier[k] = Math.max(0, multiplier[k] - step * subgradient(k, positive, multiplier));
+		}
+		return best;
+	}
+
+	/**
+	 * @return the derivative of the bound with respect to share[i][j].
+	 */
+	private double subgradient(int i, int j, boolean[] positive) {
+		double q = Q[i][j];
+		int si = positive[i] ? 1 : 0, sj = positive[j] ? 1 : 0;
+		if (q > 0)
+			return q * (si - sj);
+		if (q < 0)
+			return -q * (1 - si - sj);
+		return 0;
+	}
+
+	/**
+	 * @return the derivative of the bound with respect to the multiplier of
+	 *         element k, projected so that a multiplier at 0 does not go
+	 *         below it.
+	 */
+	private double subgradient(int k, boolean[] positive, double[] multiplier) {
+		int covering = 0;
+		for (int i : coverers[k]) {
+			if (positive[i])
+				covering++;
+		}
+		double g = covering - 1;
+		return multiplier[k] == 0 && g > 0 ? 0 : g;
+	}
+
+	/**
+	 * @param lowerBound
+	 *            The value of a feasible solution.
+	 * @return the best of the bounds.
+	 */
+	public double compute(double lowerBound) {
+		return Math.min(rowBound(), roofBound(lowerBound));
+	}
+
+	/**
+	 * @return the best of the bounds, for the lower bound of the solution
+	 *         selecting every variable if there are set cover constraints, or
+	 *         of the empty solution otherwise.
+	 */
+	public double compute() {
+		double lowerBound = offset;
+		if (coverers != null) {
+			for (int i = 0; i < n; i++) {
+				lowerBound += diag[i];
+				for (int j = i + 1; j < n; j++)
+					lowerBound += Q[i][j];
+			}
+		}
+		return compute(lowerBound);
+	}
+
+	/**
+	 * @return the relative optimality gap, in percent, of a solution of value
+	 *         value for the upper bound upper.
+	 */
+	public static double gap(double upper, double value) {
+		return 100 * (upper - value) / Math.max(1e-9, Math.abs(upper));
+	}
+
+}
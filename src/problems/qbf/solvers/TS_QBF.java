@@ -1,12 +1,22 @@
 package problems.qbf.solvers;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.FutureTask;
 
 import metaheuristics.tabusearch.AbstractTS;
+import metaheuristics.tabusearch.BoundOrder;
+import metaheuristics.tabusearch.ConvergenceTrace;
+import metaheuristics.tabusearch.SeedPool;
+import metaheuristics.tabusearch.StopCriterion;
+import problems.qbf.QBF;
 import problems.qbf.QBF_Inverse;
+import problems.qbf.QBF_UpperBound;
 import solutions.Solution;
 
 
@@ -21,7 +31,31 @@ import solutions.Solution;
  */
 public class TS_QBF extends AbstractTS<Integer> {
 	
-	private final Integer fake = new Integer(-1);
+	private final Integer fake = Integer.valueOf(-1);
+
+	/**
+	 * minInteraction[i] = min over j != i of A[i][j] + A[j][i], for the
+	 * bounds of the exchanges
+	 */
+	private final double[] minInteraction;
+
+	/**
+	 * the coefficients of the instance, for the incremental construction
+	 */
+	private final Double[][] A;
+
+	/**
+	 * whether the exchanges are visited in order of their bounds and cut
+	 * off, see {@link #setBoundedExchanges(boolean)}
+	 */
+	private boolean boundedExchanges;
+	private BoundOrder boundIn, boundOut;
+	private double[] insertionCost, removalCost;
+
+	/**
+	 * the number of exchanges evaluated and skipped by their bounds
+	 */
+	private long exchangesEvaluated, exchangesSkipped;
 
 	/**
 	 * Constructor for the TS_QBF class. An inverse QBF objective function is
@@ -47,7 +81,164 @@ public class TS_QBF extends AbstractTS<Integer> {
 	 *             necessary for I/O operations.
 	 */
 	public TS_QBF(Integer tenure, Integer timeLimit, Integer consecutiveBetterSolutionsToIntensification, String filename, Double portionCL, boolean isFirstImprovement, boolean isWithIntensification) throws IOException {
-		super(new QBF_Inverse(filename), tenure, timeLimit, consecutiveBetterSolutionsToIntensification, portionCL, isFirstImprovement, isWithIntensification);
+		this(tenure, timeLimit, consecutiveBetterSolutionsToIntensification, new QBF_Inverse(filename), portionCL, isFirstImprovement, isWithIntensification);
+	}
+
+	/**
+	 * Constructor for the TS_QBF class over an instance already loaded. The
+	 * objective function must not be shared with another running solver, see
+	 * {@link QBF_Inverse#QBF_Inverse(problems.qbf.QBF)}.
+	 *
+	 * @param tenure
+	 *            The Tabu tenure parameter.
+	 * @param timeLimit
+	 *            The number of seconds which the TS will be executed.
+	 * @param consecutiveBetterSolutionsToIntensification
+	 *            The number of consecutive better solutions to trigger intensification.
+	 * @param objFunction
+	 *            The inverse QBF objective function.
+	 * @param portionCL
+	 *            The portion of Candidate List that will be considered in local
+	 *            search.
+	 * @param isFirstImprovement
+	 *            Decides if the local search will be first-improvement
+	 * @param isWithIntensification
+	 *            Decides if it will use intensification strategy
+	 */
+	public TS_QBF(Integer tenure, Integer timeLimit, Integer consecutiveBetterSolutionsToIntensification, QBF_Inverse objFunction, Double portionCL, boolean isFirstImprovement, boolean isWithIntensification) {
+		super(objFunction, tenure, timeLimit, consecutiveBetterSolutionsToIntensification, portionCL, isFirstImprovement, isWithIntensification);
+		int n = objFunction.size;
+		A = objFunction.A;
+		minInteraction = new double[n];
+		for (int i = 0; i < n; i++) {
+			double min = Double.POSITIVE_INFINITY;
+			for (int j = 0; j < n; j++) {
+				if (j != i)
+					min = Math.min(min, objFunction.A[i][j] + objFunction.A[j][i]);
+			}
+			minInteraction[i] = min;
+		}
+	}
+
+	/**
+	 * Makes the exchanges be visited in increasing order of a lower bound of
+	 * their cost, insertionCost(in) + removalCost(out) + min_j (A_in,j +
+	 * A_j,in), and skips those that cannot beat the best move found, instead
+	 * of evaluating all of them. The move selected is the same, ties
+	 * included. The counts of evaluated and skipped exchanges are given by
+	 * {@link #getExchangeCounts()}.
+	 *
+	 * @param bounded
+	 *            Whether the exchanges are cut off by their bounds.
+	 */
+	public void setBoundedExchanges(boolean bounded) {
+		boundedExchanges = bounded;
+		if (bounded && boundIn == null) {
+			int n = ObjFunction.getDomainSize();
+			boundIn = new BoundOrder(n);
+			boundOut = new BoundOrder(n);
+			insertionCost = new double[n];
+			removalCost = new double[n];
+		}
+	}
+
+	/**
+	 * @return the numbers of exchanges evaluated and skipped by their bounds
+	 *         since {@link #init()}, in this order.
+	 */
+	public long[] getExchangeCounts() {
+		return new long[] { exchangesEvaluated, exchangesSkipped };
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Resets the counts of exchanges.
+	 */
+	@Override
+	protected void resetSearchState() {
+		exchangesEvaluated = exchangesSkipped = 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Writes the counts of exchanges.
+	 */
+	@Override
+	protected void writeSearchState(DataOutput out) throws IOException {
+		out.writeLong(exchangesEvaluated);
+		out.writeLong(exchangesSkipped);
+	}
+
+	/* (non-Javadoc)
+	 * @see metaheuristics.tabusearch.AbstractTS#readSearchState(java.io.DataInput)
+	 */
+	@Override
+	protected void readSearchState(DataInput in) throws IOException {
+		exchangesEvaluated = in.readLong();
+		exchangesSkipped = in.readLong();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * For QBF the insertion cost of every variable, -(A_ii + sum over j in
+	 * the solution of A_ij + A_ji), is kept up to date with one row and one
+	 * column of A per insertion, so that each step costs O(n) instead of an
+	 * O(n) evaluation per candidate. The RCL and the draws are the same as
+	 * in the generic construction.
+	 */
+	@Override
+	public Solution<Integer> constructiveHeuristic() {
+
+		CL = makeCL();
+		RCL = makeRCL();
+		sol = createEmptySol();
+		cost = Double.POSITIVE_INFINITY;
+		int n = A.length;
+		double[] insertion = new double[n];
+		for (int i = 0; i < n; i++)
+			insertion[i] = -A[i][i];
+		int[] rclIndexes = new int[CL.size()];
+
+		while (!constructiveStopCriteria()) {
+			double maxCost = Double.NEGATIVE_INFINITY, minCost = Double.POSITIVE_INFINITY;
+			cost = sol.cost;
+			updateCL();
+
+			if (CL.isEmpty())
+				break;
+
+			for (Integer c : CL) {
+				minCost = Math.min(minCost, insertion[c]);
+				maxCost = Math.max(maxCost, insertion[c]);
+			}
+
+			double threshold = minCost + alpha * (maxCost - minCost);
+			int rclSize = 0;
+			for (int k = 0; k < CL.size(); k++) {
+				if (insertion[CL.get(k)] <= threshold) {
+					RCL.add(CL.get(k));
+					rclIndexes[rclSize++] = k;
+				}
+			}
+
+			int rndIndex = rng.nextInt(RCL.size());
+			int in = RCL.get(rndIndex);
+			int k = rclIndexes[rndIndex];
+			CL.set(k, CL.get(CL.size() - 1));
+			CL.remove(CL.size() - 1);
+			sol.add(in);
+			sol.cost += insertion[in];
+			for (int j = 0; j < n; j++) {
+				if (j != in)
+					insertion[j] -= A[in][j] + A[j][in];
+			}
+			RCL.clear();
+		}
+
+		return sol;
 	}
 
 	/* (non-Javadoc)
@@ -58,7 +249,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
 		ArrayList<Integer> _CL = new ArrayList<Integer>();
 		for (int i = 0; i < ObjFunction.getDomainSize(); i++) {
-			Integer cand = new Integer(i);
+			Integer cand = Integer.valueOf(i);
 			_CL.add(cand);
 		}
 
@@ -72,7 +263,7 @@ public class TS_QBF extends AbstractTS<Integer> {
     @Override
     public ArrayList<Integer> makeCLPortion() {
 
-        Collections.shuffle(CL);
+        Collections.shuffle(CL, rng);
         ArrayList<Integer> CLPortion = new ArrayList<>(CL.subList(0, (int) (portionCL * CL.size())));
 
         return CLPortion;
@@ -125,6 +316,22 @@ public class TS_QBF extends AbstractTS<Integer> {
 
     }
 
+	/* (non-Javadoc)
+	 * @see metaheuristics.tabusearch.AbstractTS#writeElement(java.io.DataOutput, java.lang.Object)
+	 */
+	@Override
+	protected void writeElement(DataOutput out, Integer elem) throws IOException {
+		out.writeInt(elem);
+	}
+
+	/* (non-Javadoc)
+	 * @see metaheuristics.tabusearch.AbstractTS#readElement(java.io.DataInput)
+	 */
+	@Override
+	protected Integer readElement(DataInput in) throws IOException {
+		return in.readInt();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -144,6 +351,8 @@ public class TS_QBF extends AbstractTS<Integer> {
 	 * 
 	 * The local search operator developed for the QBF objective function is
 	 * composed by the neighborhood moves Insertion, Removal and 2-Exchange.
+	 * With bounded exchanges, only the exchanges whose bound may beat the best
+	 * move are evaluated (see {@link #boundedExchanges(double, boolean)}).
 	 */
 	@Override
 	public Solution<Integer> neighborhoodMove() {
@@ -154,8 +363,11 @@ public class TS_QBF extends AbstractTS<Integer> {
 		minDeltaCost = Double.POSITIVE_INFINITY;
 		updateCL();
 		// Evaluate insertions
-		for (Integer candIn : CL) {
+		for (int k = 0; k < CL.size(); k++) {
+			Integer candIn = CL.get(k);
 			Double deltaCost = ObjFunction.evaluateInsertionCost(candIn, sol);
+			if (boundedExchanges)
+				insertionCost[k] = deltaCost;
 			if (!TL.contains(candIn) || sol.cost+deltaCost < bestSol.cost) {
 				if (deltaCost < minDeltaCost) {
 					minDeltaCost = deltaCost;
@@ -165,8 +377,11 @@ public class TS_QBF extends AbstractTS<Integer> {
 			}
 		}
 		// Evaluate removals
-		for (Integer candOut : sol) {
+		for (int k = 0; k < sol.size(); k++) {
+			Integer candOut = sol.get(k);
 			Double deltaCost = ObjFunction.evaluateRemovalCost(candOut, sol);
+			if (boundedExchanges)
+				removalCost[k] = deltaCost;
 			if (!TL.contains(candOut) || sol.cost+deltaCost < bestSol.cost) {
 				if (deltaCost < minDeltaCost) {
 					minDeltaCost = deltaCost;
@@ -176,14 +391,22 @@ public class TS_QBF extends AbstractTS<Integer> {
 			}
 		}
 		// Evaluate exchanges
-		for (Integer candIn : CL) {
-			for (Integer candOut : sol) {
-				Double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, sol);
-				if ((!TL.contains(candIn) && !TL.contains(candOut)) || sol.cost+deltaCost < bestSol.cost) {
-					if (deltaCost < minDeltaCost) {
-						minDeltaCost = deltaCost;
-						bestCandIn = candIn;
-						bestCandOut = candOut;
+		if (boundedExchanges) {
+			int[] move = boundedExchanges(minDeltaCost, bestCandIn != null || bestCandOut != null);
+			if (move != null) {
+				bestCandIn = move[0];
+				bestCandOut = move[1];
+			}
+		} else {
+			for (Integer candIn : CL) {
+				for (Integer candOut : sol) {
+					Double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, sol);
+					if ((!TL.contains(candIn) && !TL.contains(candOut)) || sol.cost+deltaCost < bestSol.cost) {
+						if (deltaCost < minDeltaCost) {
+							minDeltaCost = deltaCost;
+							bestCandIn = candIn;
+							bestCandOut = candOut;
+						}
 					}
 				}
 			}
@@ -210,6 +433,65 @@ public class TS_QBF extends AbstractTS<Integer> {
 		return null;
 	}
 
+	/**
+	 * Evaluates the exchanges in increasing order of the lower bound of their
+	 * cost, from the insertion and removal costs of the current iteration,
+	 * stopping for each candidate to enter at the first element to leave whose
+	 * bound exceeds the best cost. Ties are broken as in the order of the CL
+	 * and of the solution, so that the move selected is the one of the full
+	 * scan.
+	 *
+	 * @param minDeltaCost
+	 *            The cost of the best insertion or removal.
+	 * @param hasMove
+	 *            Whether some insertion or removal was selected, in which case
+	 *            an exchange must cost strictly less.
+	 * @return The best admissible exchange {in, out}, or null if none beats
+	 *         minDeltaCost.
+	 */
+	private int[] boundedExchanges(double minDeltaCost, boolean hasMove) {
+		int solSize = sol.size();
+		boundIn.clear();
+		for (int k = 0; k < CL.size(); k++)
+			boundIn.add(k, insertionCost[k] + minInteraction[CL.get(k)]);
+		boundIn.sort();
+		boundOut.clear();
+		for (int k = 0; k < solSize; k++)
+			boundOut.add(k, removalCost[k]);
+		boundOut.sort();
+
+		int[] best = null;
+		long bestRank = hasMove ? -1 : Long.MAX_VALUE;
+		for (int a = 0; a < boundIn.size(); a++) {
+			if (solSize > 0 && boundIn.key(a) + boundOut.key(0) > minDeltaCost) {
+				// no later candidate can beat the best move either
+				exchangesSkipped += (long) (boundIn.size() - a) * solSize;
+				break;
+			}
+			int inIndex = boundIn.item(a);
+			Integer candIn = CL.get(inIndex);
+			for (int b = 0; b < solSize; b++) {
+				if (boundIn.key(a) + boundOut.key(b) > minDeltaCost) {
+					exchangesSkipped += solSize - b;
+					break;
+				}
+				exchangesEvaluated++;
+				int outIndex = boundOut.item(b);
+				Integer candOut = sol.get(outIndex);
+				Double deltaCost = ObjFunction.evaluateExchangeCost(candIn, candOut, sol);
+				if ((!TL.contains(candIn) && !TL.contains(candOut)) || sol.cost+deltaCost < bestSol.cost) {
+					long rank = (long) inIndex * solSize + outIndex;
+					if (deltaCost < minDeltaCost || (deltaCost == minDeltaCost && rank < bestRank)) {
+						minDeltaCost = deltaCost;
+						bestRank = rank;
+						best = new int[] { candIn, candOut };
+					}
+				}
+			}
+		}
+		return best;
+	}
+
 	/**
 	 * A main method used for testing the TS metaheuristic.
 	 * 
@@ -258,7 +540,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 					intensLength = Integer.parseInt(args[idx++]);
 					if (intensEvery <= 0 || intensLength <= 0)
 						throw new IllegalArgumentException("<every> and <length> must be > 0.");
-					if (args.length > idx) forceBestOnIntens = Boolean.parseBoolean(args[idx++]);
+					if (args.length > idx && !args[idx].startsWith("--")) forceBestOnIntens = Boolean.parseBoolean(args[idx++]);
 					withIntensification = true;
 					break;
 
@@ -272,7 +554,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 					intensLength = Integer.parseInt(args[idx++]);
 					if (intensEvery <= 0 || intensLength <= 0)
 						throw new IllegalArgumentException("<every> and <length> must be > 0.");
-					if (args.length > idx) forceBestOnIntens = Boolean.parseBoolean(args[idx++]);
+					if (args.length > idx && !args[idx].startsWith("--")) forceBestOnIntens = Boolean.parseBoolean(args[idx++]);
 					useProbTS           = true;
 					withIntensification = true;
 					break;
@@ -281,16 +563,145 @@ public class TS_QBF extends AbstractTS<Integer> {
 					throw new IllegalArgumentException("Unknown mode: " + mode);
 			}
 
+			String traceFile = null, checkpointFile = null, resumeFile = null;
+			int checkpointInterval = 60;
+			int poolSize = 0, poolKeep = 1, poolDistance = 0;
+			boolean bounded = false;
+			double adaptiveRate = 0, minPortion = 0.05;
+			double alpha = 0.0;
+			long widenAfter = 500;
+			List<StopCriterion> stopCriteria = new ArrayList<>();
+			while (idx < args.length) {
+				String option = args[idx++];
+				switch (option) {
+					case "--trace":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --trace requires <file>.");
+						traceFile = args[idx++];
+						break;
+					case "--checkpoint":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --checkpoint requires <file> [intervalSec].");
+						checkpointFile = args[idx++];
+						if (idx < args.length && !args[idx].startsWith("--"))
+							checkpointInterval = Integer.parseInt(args[idx++]);
+						if (checkpointInterval <= 0)
+							throw new IllegalArgumentException("<intervalSec> must be > 0.");
+						break;
+					case "--target":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --target requires <value>.");
+						stopCriteria.add(StopCriterion.targetCost(-Double.parseDouble(args[idx++])));
+						break;
+					case "--max-iters":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --max-iters requires <n>.");
+						stopCriteria.add(StopCriterion.maxIterations(Long.parseLong(args[idx++])));
+						break;
+					case "--stall-iters":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --stall-iters requires <n>.");
+						stopCriteria.add(StopCriterion.stagnationIterations(Long.parseLong(args[idx++])));
+						break;
+					case "--stall-secs":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --stall-secs requires <s>.");
+						stopCriteria.add(StopCriterion.stagnationSeconds(Double.parseDouble(args[idx++])));
+						break;
+					case "--cpu-time":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --cpu-time requires <s>.");
+						stopCriteria.add(StopCriterion.cpuTime(Double.parseDouble(args[idx++])));
+						break;
+					case "--bounded":
+						bounded = true;
+						break;
+					case "--alpha":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --alpha requires <a>.");
+						alpha = Double.parseDouble(args[idx++]);
+						if (alpha < 0.0 || alpha > 1.0)
+							throw new IllegalArgumentException("alpha must be in [0,1].");
+						break;
+					case "--grasp-pool":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --grasp-pool requires <n> [keep] [minDist].");
+						poolSize = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							poolKeep = Integer.parseInt(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							poolDistance = Integer.parseInt(args[idx++]);
+						if (poolSize < 1 || poolKeep < 1 || poolDistance < 0)
+							throw new IllegalArgumentException("<n> and keep must be >= 1 and minDist >= 0.");
+						break;
+					case "--adaptive-portion":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --adaptive-portion requires <iters/s> [minPortion] [stallIters].");
+						adaptiveRate = Double.parseDouble(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							minPortion = Double.parseDouble(args[idx++]);
+						if (idx < args.length && !args[idx].startsWith("--"))
+							widenAfter = Long.parseLong(args[idx++]);
+						if (adaptiveRate <= 0 || minPortion <= 0.0 || minPortion > 1.0)
+							throw new IllegalArgumentException("<iters/s> must be > 0 and minPortion in (0,1].");
+						break;
+					case "--resume":
+						if (args.length <= idx)
+							throw new IllegalArgumentException("Option --resume requires <file>.");
+						resumeFile = args[idx++];
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option: " + option);
+				}
+			}
+
 			long t0 = System.currentTimeMillis();
 
 			// Intensification triggers after finding 3 consecutive better solutions (can be changed in the constructor call below)
-			TS_QBF ts = new TS_QBF(tenure, timeLimitSec, 3, filename, portionCL, firstImprovement, withIntensification);
-			// Solve
-			Solution<Integer> bestSol = ts.solve();
+			final QBF problem = new QBF(filename);
+			TS_QBF ts = new TS_QBF(tenure, timeLimitSec, 3, new QBF_Inverse(problem), portionCL, firstImprovement, withIntensification);
+			// the search stops as soon as it reaches the upper bound, computed
+			// meanwhile so that the search does not wait for it
+			FutureTask<Double> upperBound = new FutureTask<>(() -> new QBF_UpperBound(problem).compute());
+			Thread boundThread = new Thread(upperBound, "upper-bound");
+			boundThread.setDaemon(true);
+			boundThread.start();
+			ts.addStopCriterion(StopCriterion.upperBound(upperBound));
+			if (poolSize > 0 && resumeFile == null) {
+				// Randomized constructions, one solver per worker thread sharing the instance
+				final double poolAlpha = alpha;
+				final double poolPortionCL = portionCL;
+				final boolean poolIntensification = withIntensification;
+				SeedPool<Integer> pool = SeedPool.build(() -> {
+					TS_QBF seeder = new TS_QBF(tenure, timeLimitSec, 3, new QBF_Inverse(problem), poolPortionCL, firstImprovement, poolIntensification);
+					seeder.setAlpha(poolAlpha);
+					return seeder;
+				}, poolSize, poolKeep, poolDistance, 0, Runtime.getRuntime().availableProcessors());
+				System.out.printf("Seed pool: %d of %d constructions kept, best cost=%s%n", pool.getSeeds().size(), pool.getConstructions(), pool.getBest().cost);
+				ts.setInitialSolution(pool.getBest());
+			}
+			if (traceFile != null)
+				ts.setTrace(ConvergenceTrace.toFile(traceFile));
+			if (checkpointFile != null)
+				ts.setCheckpoint(checkpointFile, checkpointInterval);
+			for (StopCriterion criterion : stopCriteria)
+				ts.addStopCriterion(criterion);
+			if (adaptiveRate > 0)
+				ts.setAdaptivePortion(adaptiveRate, minPortion, widenAfter);
+			ts.setAlpha(alpha);
+			ts.setBoundedExchanges(bounded);
+			// Solve, or continue a checkpointed search
+			Solution<Integer> bestSol = resumeFile != null ? ts.resume(resumeFile) : ts.solve();
 
 			long t1 = System.currentTimeMillis();
 			System.out.println("Best solution found: " + bestSol);
+			double bound = upperBound.get();
+			System.out.printf("Upper bound: %.2f, gap: %.3f%%%n", bound, QBF_UpperBound.gap(bound, -bestSol.cost));
 			System.out.printf("Time (s): %.3f%n", (t1 - t0) / 1000.0);
+			if (bounded) {
+				long[] counts = ts.getExchangeCounts();
+				System.out.printf("Exchanges evaluated: %d, skipped by bounds: %d%n", counts[0], counts[1]);
+			}
 
 		} catch (Exception e) {
 			System.err.println("Error: " + e.getMessage());
@@ -301,7 +712,7 @@ public class TS_QBF extends AbstractTS<Integer> {
 
 	private static void printUsage() {
 		System.out.println("Uso:");
-		System.out.println("  java -cp bin problems.qbf.solvers.TS_QBF <instance> <tenure> <timelimit_sec> <mode> <firstImprovement> [params...]");
+		System.out.println("  java -cp bin problems.qbf.solvers.TS_QBF <instance> <tenure> <timelimit_sec> <mode> <firstImprovement> [params...] [options...]");
 		System.out.println();
 		System.out.println("Modos:");
 		System.out.println("  standard");
@@ -309,6 +720,20 @@ public class TS_QBF extends AbstractTS<Integer> {
 		System.out.println("  intensify <every> <length> [forceBest(true/false)]");
 		System.out.println("  prob_plus_intensify <portionCL> <every> <length> [forceBest(true/false)]");
 		System.out.println();
+		System.out.println("Opções:");
+		System.out.println("  --trace <file>      convergence trace (CSV, or binary if <file> ends with .bin)");
+		System.out.println("  --checkpoint <file> [intervalSec]   periodic checkpoint of the search (default: 60s)");
+		System.out.println("  --resume <file>     continue the search saved in a checkpoint");
+		System.out.println("  --target <value>    stop when the objective reaches <value>");
+		System.out.println("  --max-iters <n>     stop after <n> iterations");
+		System.out.println("  --stall-iters <n>   stop after <n> iterations without improvement");
+		System.out.println("  --stall-secs <s>    stop after <s> seconds without improvement");
+		System.out.println("  --cpu-time <s>      stop after <s> seconds of CPU time of the search thread");
+		System.out.println("  --bounded           visit exchanges by their cost bounds and skip those that cannot beat the best move");
+		System.out.println("  --alpha <a>         greediness of the constructive heuristic, in [0,1] (default: 0, greedy)");
+		System.out.println("  --grasp-pool <n> [keep] [minDist]   start from the best of <n> parallel GRASP constructions, keeping <keep> solutions at least <minDist> apart (default: 1, 0; use --alpha > 0)");
+		System.out.println("  --adaptive-portion <iters/s> [minPortion] [stallIters]   adapt portionCL to a target iteration rate (default: 0.05, 500)");
+		System.out.println();
 		System.out.println("Exemplos:");
 		System.out.println("  java -cp bin problems.qbf.solvers.TS_QBF instances/qbf/qbf100 20 60 standard false");
 		System.out.println("  java -cp bin problems.qbf.solvers.TS_QBF instances/qbf/qbf100 20 60 prob_ts false 0.25");